@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former stream based hashing (1 KB heap buffer, {@code String.format} per byte) with {@link HashUtil},
+ * and a download written then hashed again with one hashed by a {@link HashingChannel} while it is written.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashUtilBenchmark {
+
+    private static final int FILES = 4;
+
+    @Param("32")
+    private int sizeMiB;
+
+    private Path directory;
+    private List<Path> files;
+    private Path output;
+    private byte[] chunk;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("hash-benchmark");
+        this.files = new ArrayList<>(FILES);
+        final Random random = new Random(42L);
+        final byte[] content = new byte[this.sizeMiB * 1024 * 1024];
+        for (int i = 0; i < FILES; i++) {
+            random.nextBytes(content);
+            this.files.add(Files.write(this.directory.resolve(i + ".bin"), content));
+        }
+        this.output = this.directory.resolve("output.bin");
+        // Roughly the size of the buffers received from the HTTP client
+        this.chunk = new byte[16 * 1024];
+        random.nextBytes(this.chunk);
+        this.executor = Executors.newFixedThreadPool(FILES);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.executor.shutdownNow();
+        for (final Path file : this.files) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(this.output);
+        Files.deleteIfExists(this.directory);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(this.output);
+    }
+
+    @Benchmark
+    public String legacyHash() throws IOException {
+        return legacyHash(this.files.get(0));
+    }
+
+    @Benchmark
+    public String hash() throws IOException {
+        return HashUtil.hash(this.files.get(0));
+    }
+
+    @Benchmark
+    public List<String> legacyHashSequential() throws IOException {
+        final List<String> hashes = new ArrayList<>(FILES);
+        for (final Path file : this.files) {
+            hashes.add(legacyHash(file));
+        }
+        return hashes;
+    }
+
+    @Benchmark
+    public Map<Path, String> hashAll() throws IOException {
+        return HashUtil.hashAll(this.files, this.executor);
+    }
+
+    @Benchmark
+    public String writeThenHash() throws IOException {
+        try (final FileChannel channel = this.openOutput()) {
+            this.writeContent(channel);
+        }
+        return HashUtil.hash(this.output);
+    }
+
+    @Benchmark
+    public String hashWhileWriting() throws IOException {
+        try (final HashingChannel channel = new HashingChannel(this.openOutput(), HashUtil.newSha1())) {
+            this.writeContent(channel);
+            return channel.digest();
+        }
+    }
+
+    private FileChannel openOutput() throws IOException {
+        return FileChannel.open(this.output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void writeContent(final WritableByteChannel channel) throws IOException {
+        final long chunks = this.sizeMiB * 1024L * 1024L / this.chunk.length;
+        for (long i = 0; i < chunks; i++) {
+            final ByteBuffer buffer = ByteBuffer.wrap(this.chunk);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static String legacyHash(final Path path) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        final byte[] buf = new byte[1024];
+        int count;
+        try (final InputStream stream = Files.newInputStream(path)) {
+            while ((count = stream.read(buf)) != -1) digest.update(buf, 0, count);
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former tree based deserialization of the manifest with the streaming {@link VersionJsonAdapter}.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionJsonAdapterBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    @Param("800")
+    private int versions;
+
+    private String manifest;
+    private VersionJsonAdapter adapter;
+
+    @Setup
+    public void setup() {
+        this.adapter = new VersionJsonAdapter();
+        final JsonArray array = new JsonArray(this.versions);
+        OffsetDateTime time = OffsetDateTime.of(2024, 6, 13, 8, 24, 3, 0, ZoneOffset.UTC);
+        for (int i = 0; i < this.versions; i++) {
+            final JsonObject object = new JsonObject();
+            final String sha1 = String.format("%040x", i * 7919L);
+            object.addProperty("id", i % 4 == 0 ? "1." + (i / 4) : (i / 4) + "w" + (i % 4) + "a");
+            object.addProperty("type", i % 4 == 0 ? "release" : i > this.versions - 50 ? "old_alpha" : "snapshot");
+            object.addProperty("url", "https://piston-meta.mojang.com/v1/packages/" + sha1 + "/" + i + ".json");
+            object.addProperty("time", FORMATTER.format(time));
+            object.addProperty("releaseTime", FORMATTER.format(time.minusHours(3)));
+            object.addProperty("sha1", sha1);
+            object.addProperty("complianceLevel", 1);
+            array.add(object);
+            time = time.minusDays(3);
+        }
+        final JsonObject latest = new JsonObject();
+        latest.addProperty("release", "1.0");
+        latest.addProperty("snapshot", "0w1a");
+        final JsonObject root = new JsonObject();
+        root.add("latest", latest);
+        root.add("versions", array);
+        this.manifest = root.toString();
+    }
+
+    @Benchmark
+    public List<Version> tree() {
+        final JsonArray array = JsonParser.parseString(this.manifest).getAsJsonObject().getAsJsonArray("versions");
+        final List<Version> result = new ArrayList<>(array.size());
+        for (final JsonElement element : array) {
+            result.add(deserializeTree(element.getAsJsonObject()));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Version> streaming() throws IOException {
+        final List<Version> result = new ArrayList<>();
+        try (final JsonReader reader = new JsonReader(new StringReader(this.manifest))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("versions")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    result.add(this.adapter.read(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return result;
+    }
+
+    // Former JsonDeserializer implementation, kept here as the baseline
+    private static Version deserializeTree(final JsonObject object) {
+        final String id = object.get("id").getAsString();
+        final String rawType = object.get("type").getAsString();
+        VersionType type = null;
+        for (final VersionType value : VersionType.values()) {
+            if (value.name().equalsIgnoreCase(rawType)) {
+                type = value;
+                break;
+            }
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid version type: '" + rawType + "' for version '" + id + "'");
+        }
+        final String url = object.get("url").getAsString();
+        return new Version(id, type, url, parseTreeTime(object.get("time")), parseTreeTime(object.get("releaseTime")));
+    }
+
+    private static OffsetDateTime parseTreeTime(final JsonElement element) {
+        if (element instanceof final JsonPrimitive primitive && primitive.isString()) {
+            return OffsetDateTime.parse(primitive.getAsString(), FORMATTER);
+        }
+        return null;
+    }
+
+}
\ No newline at end of file
@@ -24,8 +24,14 @@
 
 package be.yvanmazy.minecraftremapper;
 
+import be.yvanmazy.minecraftremapper.http.ResiliencePolicy;
+import be.yvanmazy.minecraftremapper.process.remap.RemapEngine;
+import be.yvanmazy.minecraftremapper.setting.PreparationSettings;
 import com.beust.jcommander.Parameter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 final class Configuration {
 
     @Parameter(order = 1, names = {"--help", "-h"}, help = true)
@@ -49,6 +55,57 @@ final class Configuration {
     @Parameter(order = 7, names = {"--output-directory", "-o"}, description = "Output directory.")
     private String outputDirectory = "MinecraftRemapper";
 
+    @Parameter(order = 8, names = {"--connections", "-c"}, description = "Number of parallel connections used to download large files.")
+    private int connections = PreparationSettings.DEFAULT_DOWNLOAD_CONNECTIONS;
+
+    @Parameter(order = 9, names = {"--batch", "-b"}, description = "Select many versions to process in one run, e.g. '1.19..1.21.1', 'release:1.14..' or '1.20.4,1.21'. Both types are processed when no type is specified.")
+    private String batch;
+
+    @Parameter(order = 10, names = {"--jobs", "-j"}, description = "Maximum number of versions processed at the same time in batch mode.")
+    private int jobs = 2;
+
+    @Parameter(order = 11, names = {"--manifest-ttl"}, description = "Minutes during which the cached version manifest is used without revalidation.")
+    private long manifestTtl = 60;
+
+    @Parameter(order = 12, names = {"--watch", "-w"}, description = "Keep polling the version manifest and process every newly published version.")
+    private boolean watch;
+
+    @Parameter(order = 13, names = {"--poll-interval"}, description = "Seconds between two polls of the version manifest in watch mode.")
+    private long pollInterval = 60;
+
+    @Parameter(order = 14, names = {"--watch-queue"}, description = "Maximum number of new versions waiting to be processed in watch mode.")
+    private int watchQueue = 16;
+
+    @Parameter(order = 15, names = {"--attempts"}, description = "Maximum number of attempts of a failed or stalled HTTP request.")
+    private int attempts = ResiliencePolicy.DEFAULT.maxAttempts();
+
+    @Parameter(order = 16, names = {"--store", "-s"}, description = "Directory of a local store serving downloaded files, filled with every new download.")
+    private String store;
+
+    @Parameter(order = 17, names = {"--offline"}, description = "Never use the network, every file must be in the store.")
+    private boolean offline;
+
+    @Parameter(order = 18, names = {"--mirror", "-m"}, description = "Download the jars and mappings of every selected version into the store.")
+    private boolean mirror;
+
+    @Parameter(order = 19, names = {"--mirror-types"}, description = "Comma separated version types to mirror (e.g. release,snapshot), all by default.")
+    private List<String> mirrorTypes = new ArrayList<>();
+
+    @Parameter(order = 20, names = {"--since"}, description = "Only mirror versions released since this date (yyyy-MM-dd).")
+    private String since;
+
+    @Parameter(order = 21, names = {"--cache"}, description = "Directory of a cache shared by several output directories, which get hard links to its files.")
+    private String cacheDirectory;
+
+    @Parameter(order = 22, names = {"--verify"}, description = "Hash every existing file again instead of trusting the hashes recorded by previous runs.")
+    private boolean verify;
+
+    @Parameter(order = 23, names = {"--remapper"}, description = "Remap engine between 'special_source' and 'builtin' (parallel, experimental).")
+    private RemapEngine remapper = RemapEngine.DEFAULT;
+
+    @Parameter(order = 24, names = {"--compare-remappers"}, description = "Remap the selected version with both engines, then report their durations and differences.")
+    private boolean compareRemappers;
+
     public boolean isHelp() {
         return this.help;
     }
@@ -77,4 +134,72 @@ final class Configuration {
         return this.outputDirectory;
     }
 
+    public int getConnections() {
+        return this.connections;
+    }
+
+    public String getBatch() {
+        return this.batch;
+    }
+
+    public int getJobs() {
+        return this.jobs;
+    }
+
+    public long getManifestTtl() {
+        return this.manifestTtl;
+    }
+
+    public boolean isWatch() {
+        return this.watch;
+    }
+
+    public long getPollInterval() {
+        return this.pollInterval;
+    }
+
+    public int getWatchQueue() {
+        return this.watchQueue;
+    }
+
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    public String getStore() {
+        return this.store;
+    }
+
+    public boolean isOffline() {
+        return this.offline;
+    }
+
+    public boolean isMirror() {
+        return this.mirror;
+    }
+
+    public List<String> getMirrorTypes() {
+        return this.mirrorTypes;
+    }
+
+    public String getSince() {
+        return this.since;
+    }
+
+    public String getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    public boolean isVerify() {
+        return this.verify;
+    }
+
+    public RemapEngine getRemapper() {
+        return this.remapper;
+    }
+
+    public boolean isCompareRemappers() {
+        return this.compareRemappers;
+    }
+
 }
\ No newline at end of file
@@ -24,28 +24,84 @@
 
 package be.yvanmazy.minecraftremapper;
 
+import be.yvanmazy.minecraftremapper.batch.BatchJob;
+import be.yvanmazy.minecraftremapper.batch.BatchProcessor;
+import be.yvanmazy.minecraftremapper.batch.BatchResult;
+import be.yvanmazy.minecraftremapper.batch.VersionSelector;
 import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
+import be.yvanmazy.minecraftremapper.http.ResiliencePolicy;
 import be.yvanmazy.minecraftremapper.process.RemapperProcessor;
 import be.yvanmazy.minecraftremapper.process.exception.ProcessingException;
+import be.yvanmazy.minecraftremapper.process.remap.RemapComparison;
+import be.yvanmazy.minecraftremapper.process.remap.RemapEngine;
+import be.yvanmazy.minecraftremapper.process.stage.StageScheduler;
 import be.yvanmazy.minecraftremapper.setting.PreparationSettings;
+import be.yvanmazy.minecraftremapper.store.ArtifactStore;
+import be.yvanmazy.minecraftremapper.store.MirrorResult;
+import be.yvanmazy.minecraftremapper.store.StoreMirror;
 import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.VersionType;
 import be.yvanmazy.minecraftremapper.version.fetcher.VersionFetcher;
 import be.yvanmazy.minecraftremapper.version.fetcher.exception.VersionFetchingException;
+import be.yvanmazy.minecraftremapper.version.index.IndexUpdate;
+import be.yvanmazy.minecraftremapper.version.index.VersionCapabilities;
+import be.yvanmazy.minecraftremapper.version.index.VersionIndex;
+import be.yvanmazy.minecraftremapper.watch.ManifestWatcher;
 import com.beust.jcommander.JCommander;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 public class Main {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
+    private static final String MANIFEST_CACHE_FILE = "version_manifest.json";
+    private static final String INDEX_FILE = "version_index.json";
+    private static final String WATCH_STATE_FILE = "watch_state.txt";
+    private static final int COMPARE_ROUNDS = 3;
+    private static final int COMPARE_LISTED_ENTRIES = 20;
 
     public static void main(final String[] args) throws ProcessingException {
+        final Configuration config = new Configuration();
+        final JCommander commander = JCommander.newBuilder().addObject(config).build();
+        commander.parse(args);
+        if (args.length == 0 || config.isHelp()) {
+            commander.usage();
+            return;
+        }
+
         final Gson gson = new Gson();
-        final RequestHttpClient httpClient = RequestHttpClient.newDefault();
-        final VersionFetcher versionFetcher = VersionFetcher.newMojangFetcher(httpClient, gson);
+        if (config.isOffline() && config.getStore() == null) {
+            LOGGER.error("Offline mode requires a store, please specify it with '--store'.");
+            System.exit(-1);
+            return;
+        }
+        if (config.isMirror() && (config.getStore() == null || config.isOffline())) {
+            LOGGER.error("Mirror mode requires a store and the network, please specify it with '--store'.");
+            System.exit(-1);
+            return;
+        }
+        final RequestHttpClient httpClient = createHttpClient(config);
+        final VersionFetcher versionFetcher = VersionFetcher.caching(VersionFetcher.newMojangFetcher(httpClient, gson),
+                Path.of(config.getOutputDirectory(), MANIFEST_CACHE_FILE),
+                Duration.ofMinutes(config.getManifestTtl()),
+                gson);
+
+        if (config.isWatch()) {
+            watch(config, versionFetcher, httpClient, gson);
+            return;
+        }
 
         final List<Version> versions;
         try {
@@ -55,30 +111,32 @@ public class Main {
             System.exit(-1);
             return;
         }
-
-        final Configuration config = new Configuration();
-        final JCommander commander = JCommander.newBuilder().addObject(config).build();
-        commander.parse(args);
-        if (args.length == 0 || config.isHelp()) {
-            commander.usage();
-            return;
-        }
         if (config.isList()) {
+            final VersionIndex index = loadIndex(config, versions, httpClient, gson);
+            final List<DirectionType> types = config.getType() != null ? List.of(config.getType()) : List.of(DirectionType.values());
             int total = 0;
             for (final Version version : versions) {
-                if (version.type().isOld()) {
+                final List<String> sides = types.stream().filter(type -> index.isRemappable(version, type)).map(DirectionType::getKey).toList();
+                if (sides.isEmpty()) {
                     continue;
                 }
                 total++;
-                LOGGER.info("{} ({})", version.id(), version.type());
-                if (version.id().equals("1.14.4")) { // Last version with mapping
-                    break;
-                }
+                LOGGER.info("{} ({}) {}", version.id(), version.type(), sides);
             }
             LOGGER.info("Versions found: {}/{}", total, versions.size());
             return;
         }
 
+        if (config.isMirror()) {
+            mirror(config, versions);
+            return;
+        }
+
+        if (config.getBatch() != null) {
+            processBatch(config, versions, httpClient, gson);
+            return;
+        }
+
         final DirectionType type = config.getType();
         if (type == null) {
             LOGGER.error("Please specify type between 'client' and 'server'.");
@@ -95,23 +153,273 @@ public class Main {
             return;
         }
 
+        if (config.isCompareRemappers()) {
+            compareRemappers(config, version, type, httpClient, gson);
+            return;
+        }
+
         LOGGER.info("Selected version: {} ({})", version.id(), type);
         LOGGER.info("Remapping: {}", config.isRemap());
         LOGGER.info("Decompiling: {}", config.isDecompile());
         LOGGER.info("Output directory: {}", config.getOutputDirectory());
         LOGGER.info("----------------");
 
-        final PreparationSettings settings = new PreparationSettings(httpClient,
+        final PreparationSettings settings = createSettings(config, httpClient, gson, version, type);
+
+        final long start = System.currentTimeMillis();
+        new RemapperProcessor(settings).process();
+        LOGGER.info("Finished in {} seconds", (System.currentTimeMillis() - start) / 1_000);
+    }
+
+    private static void compareRemappers(final Configuration config,
+                                         final Version version,
+                                         final DirectionType type,
+                                         final RequestHttpClient httpClient,
+                                         final Gson gson) throws ProcessingException {
+        LOGGER.info("Compared version: {} ({})", version.id(), type);
+        LOGGER.info("Rounds: {}", COMPARE_ROUNDS);
+        LOGGER.info("Available processors: {}", Runtime.getRuntime().availableProcessors());
+        LOGGER.info("----------------");
+
+        // Only downloads the jar and the mapping, both engines are run below
+        final RemapperProcessor processor = new RemapperProcessor(new PreparationSettings(httpClient,
                 gson,
                 type,
                 version,
                 config.getOutputDirectory(),
+                false,
+                false)
+                .withDownloadConnections(config.getConnections())
+                .withCacheDirectory(config.getCacheDirectory())
+                .withVerify(config.isVerify()));
+        processor.process();
+
+        final RemapComparison comparison;
+        try {
+            comparison = RemapComparison.compare(processor.getVersionJarPath(),
+                    processor.getMappingPath(),
+                    processor.getVersionJarPath().getParent(),
+                    COMPARE_ROUNDS);
+        } catch (final IOException e) {
+            throw new ProcessingException("Failed to compare remap engines", e);
+        }
+
+        LOGGER.info("----------------");
+        LOGGER.info("{}: {}ms", RemapEngine.BUILTIN.getVersion(), comparison.builtinMillis());
+        LOGGER.info("{}: {}ms", RemapEngine.SPECIAL_SOURCE.getVersion(), comparison.specialSourceMillis());
+        LOGGER.info("Speedup: {}", String.format(Locale.ROOT, "%.2fx", comparison.speedup()));
+        LOGGER.info("Identical entries: {}, different: {}, only with SpecialSource: {}, only with builtin: {}",
+                comparison.identical(),
+                comparison.different().size(),
+                comparison.missing().size(),
+                comparison.extra().size());
+        comparison.different().stream().limit(COMPARE_LISTED_ENTRIES).forEach(name -> LOGGER.info("Different: {}", name));
+        comparison.missing().stream().limit(COMPARE_LISTED_ENTRIES).forEach(name -> LOGGER.info("Only with SpecialSource: {}", name));
+        comparison.extra().stream().limit(COMPARE_LISTED_ENTRIES).forEach(name -> LOGGER.info("Only with builtin: {}", name));
+        if (!comparison.isIdentical()) {
+            LOGGER.error("The outputs of the remap engines differ!");
+            System.exit(-1);
+        }
+    }
+
+    private static RequestHttpClient createNetworkClient(final Configuration config) {
+        // Retries wrap the host limit, so that an attempt waiting for its backoff does not hold a connection slot
+        return RequestHttpClient.resilient(RequestHttpClient.hostLimited(RequestHttpClient.newTuned(),
+                RequestHttpClient.DEFAULT_MAX_CONNECTIONS_PER_HOST), ResiliencePolicy.DEFAULT.withMaxAttempts(config.getAttempts()));
+    }
+
+    private static RequestHttpClient createHttpClient(final Configuration config) {
+        RequestHttpClient httpClient = config.isOffline() ? null : createNetworkClient(config);
+        if (config.getStore() != null) {
+            httpClient = RequestHttpClient.stored(new ArtifactStore(Path.of(config.getStore())), httpClient);
+        }
+        return RequestHttpClient.coalescing(httpClient);
+    }
+
+    private static PreparationSettings createSettings(final Configuration config,
+                                                      final RequestHttpClient httpClient,
+                                                      final Gson gson,
+                                                      final Version version,
+                                                      final DirectionType target) {
+        return new PreparationSettings(httpClient,
+                gson,
+                target,
+                version,
+                config.getOutputDirectory(),
                 config.isRemap(),
-                config.isDecompile());
+                config.isDecompile())
+                .withDownloadConnections(config.getConnections())
+                .withCacheDirectory(config.getCacheDirectory())
+                .withVerify(config.isVerify())
+                .withRemapEngine(config.getRemapper());
+    }
+
+    private static VersionIndex loadIndex(final Configuration config,
+                                          final List<Version> versions,
+                                          final RequestHttpClient httpClient,
+                                          final Gson gson) {
+        final VersionIndex index = VersionIndex.load(Path.of(config.getOutputDirectory(), INDEX_FILE), gson);
+        try {
+            final IndexUpdate update = index.update(versions, httpClient, VersionIndex.DEFAULT_PARALLELISM);
+            if (!update.failed().isEmpty()) {
+                LOGGER.warn("Failed to index {} versions: {}", update.failed().size(), update.failed());
+            }
+            if (update.changed()) {
+                index.save();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to save version index", e);
+        }
+        return index;
+    }
+
+    private static void processBatch(final Configuration config,
+                                     final List<Version> versions,
+                                     final RequestHttpClient httpClient,
+                                     final Gson gson) {
+        final List<Version> selected;
+        try {
+            selected = VersionSelector.parse(config.getBatch()).select(versions);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error(e.getMessage());
+            System.exit(-1);
+            return;
+        }
+        final VersionIndex index = loadIndex(config, selected, httpClient, gson);
+        final List<DirectionType> types = config.getType() != null ? List.of(config.getType()) : List.of(DirectionType.values());
+        final List<BatchJob> jobs = new ArrayList<>(selected.size() * types.size());
+        for (final Version version : selected) {
+            for (final DirectionType type : types) {
+                final VersionCapabilities capabilities = index.get(version.id());
+                // Versions that could not be indexed are kept, the processor reports what is missing
+                if (capabilities != null && (config.isRemap() ? !capabilities.isRemappable(type) : !capabilities.hasJar(type))) {
+                    LOGGER.info("SKIP --> {} has nothing to process for {}.", version.id(), type.getKey());
+                    continue;
+                }
+                jobs.add(new BatchJob(version, type));
+            }
+        }
+
+        LOGGER.info("Selected jobs: {}", jobs.size());
+        LOGGER.info("Concurrent jobs: {}", config.getJobs());
+        LOGGER.info("Remapping: {}", config.isRemap());
+        LOGGER.info("Decompiling: {}", config.isDecompile());
+        LOGGER.info("Output directory: {}", config.getOutputDirectory());
+        LOGGER.info("----------------");
+
+        final BatchProcessor processor = new BatchProcessor(job -> createSettings(config, httpClient, gson, job.version(), job.target()),
+                StageScheduler.common(),
+                config.getJobs());
 
         final long start = System.currentTimeMillis();
-        new RemapperProcessor(settings).process();
-        LOGGER.info("Finished in {} seconds", (System.currentTimeMillis() - start) / 1_000);
+        final List<BatchResult> results;
+        try {
+            results = processor.process(jobs);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Batch was interrupted");
+            System.exit(-1);
+            return;
+        }
+
+        LOGGER.info("----------------");
+        int succeeded = 0;
+        for (final BatchResult result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+            }
+            LOGGER.info("{} {} in {} seconds", result.isSuccess() ? "OK  " : "FAIL", result.job(), result.durationMillis() / 1_000);
+        }
+        LOGGER.info("Batch finished in {} seconds: {}/{} succeeded", (System.currentTimeMillis() - start) / 1_000, succeeded, results.size());
+        if (succeeded != results.size()) {
+            System.exit(-1);
+        }
+    }
+
+    private static void watch(final Configuration config,
+                              final VersionFetcher versionFetcher,
+                              final RequestHttpClient httpClient,
+                              final Gson gson) {
+        final List<DirectionType> types = config.getType() != null ? List.of(config.getType()) : List.of(DirectionType.values());
+        final Duration interval = Duration.ofSeconds(config.getPollInterval());
+        final ManifestWatcher watcher = new ManifestWatcher(versionFetcher,
+                (version, target) -> createSettings(config, httpClient, gson, version, target),
+                types,
+                StageScheduler.common(),
+                Path.of(config.getOutputDirectory(), WATCH_STATE_FILE),
+                interval,
+                config.getWatchQueue());
+
+        LOGGER.info("Watching the version manifest every {} seconds", interval.toSeconds());
+        LOGGER.info("Remapping: {}", config.isRemap());
+        LOGGER.info("Decompiling: {}", config.isDecompile());
+        LOGGER.info("Output directory: {}", config.getOutputDirectory());
+        LOGGER.info("----------------");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(watcher::close, "manifest-watcher-shutdown"));
+        watcher.start();
+        try {
+            watcher.awaitTermination();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void mirror(final Configuration config, final List<Version> versions) {
+        final Set<VersionType> types = EnumSet.noneOf(VersionType.class);
+        for (final String name : config.getMirrorTypes()) {
+            final VersionType type = VersionType.fromString(name.trim());
+            if (type == null) {
+                LOGGER.error("Unknown version type '{}'.", name);
+                System.exit(-1);
+                return;
+            }
+            types.add(type);
+        }
+        final LocalDate since;
+        try {
+            since = config.getSince() != null ? LocalDate.parse(config.getSince()) : null;
+        } catch (final DateTimeParseException e) {
+            LOGGER.error("Invalid date '{}', expected format is yyyy-MM-dd.", config.getSince());
+            System.exit(-1);
+            return;
+        }
+        final List<Version> selected = versions.stream()
+                .filter(version -> types.isEmpty() || types.contains(version.type()))
+                .filter(version -> since == null || version.releaseTime() == null || !version.releaseTime().toLocalDate().isBefore(since))
+                .toList();
+
+        LOGGER.info("Mirrored versions: {}", selected.size());
+        LOGGER.info("Store: {}", config.getStore());
+        LOGGER.info("----------------");
+
+        // The store is filled by the mirror itself, downloads go straight to the network
+        final StoreMirror mirror = new StoreMirror(new ArtifactStore(Path.of(config.getStore())),
+                RequestHttpClient.coalescing(createNetworkClient(config)),
+                config.getJobs() * config.getConnections());
+        final long start = System.currentTimeMillis();
+        final MirrorResult result;
+        try {
+            result = mirror.mirror(selected);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Mirror was interrupted");
+            System.exit(-1);
+            return;
+        }
+
+        LOGGER.info("----------------");
+        LOGGER.info("Mirror finished in {} seconds: {} downloaded ({} MiB), {} already stored, {} failed",
+                (System.currentTimeMillis() - start) / 1_000,
+                result.downloaded(),
+                result.bytes() / (1024 * 1024),
+                result.skipped(),
+                result.failures().size());
+        if (!result.isSuccess()) {
+            System.exit(-1);
+        }
     }
 
 }
\ No newline at end of file
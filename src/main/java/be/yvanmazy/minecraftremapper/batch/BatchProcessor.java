@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.batch;
+
+import be.yvanmazy.minecraftremapper.process.RemapperProcessor;
+import be.yvanmazy.minecraftremapper.process.stage.StageScheduler;
+import be.yvanmazy.minecraftremapper.setting.PreparationSettings;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Processes many jobs in the same JVM. At most {@code concurrency} pipelines are in flight at once, and they all share
+ * the same {@link StageScheduler} so that the downloads of the next jobs overlap the CPU work of the current ones.
+ */
+public final class BatchProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchProcessor.class);
+
+    private final Function<BatchJob, PreparationSettings> settingsFactory;
+    private final StageScheduler scheduler;
+    private final int concurrency;
+
+    public BatchProcessor(final @NotNull Function<BatchJob, PreparationSettings> settingsFactory,
+                          final @NotNull StageScheduler scheduler,
+                          final int concurrency) {
+        this.settingsFactory = Objects.requireNonNull(settingsFactory, "settingsFactory must not be null");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler must not be null");
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return one result per job, in the order of the given jobs
+     */
+    public @NotNull List<BatchResult> process(final @NotNull List<BatchJob> jobs) throws InterruptedException {
+        final Semaphore permits = new Semaphore(this.concurrency);
+        final List<CompletableFuture<BatchResult>> futures = new ArrayList<>(jobs.size());
+        for (final BatchJob job : jobs) {
+            permits.acquire();
+            LOGGER.info("Starting {}", job);
+            final long start = System.currentTimeMillis();
+            final CompletableFuture<BatchResult> future;
+            try {
+                final RemapperProcessor processor = new RemapperProcessor(this.settingsFactory.apply(job), this.scheduler);
+                future = processor.processAsync().toFuture().handle((path, throwable) -> {
+                    final Throwable failure = throwable != null && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    return new BatchResult(job, System.currentTimeMillis() - start, failure);
+                });
+            } catch (final RuntimeException e) {
+                permits.release();
+                futures.add(CompletableFuture.completedFuture(new BatchResult(job, 0L, e)));
+                continue;
+            }
+            futures.add(future.whenComplete((result, throwable) -> {
+                permits.release();
+                if (result.isSuccess()) {
+                    LOGGER.info("Finished {} in {}ms", job, result.durationMillis());
+                } else {
+                    LOGGER.error("Failed to process {}", job, result.failure());
+                }
+            }));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+}
\ No newline at end of file
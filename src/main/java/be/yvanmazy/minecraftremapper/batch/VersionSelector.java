@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.batch;
+
+import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.VersionType;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Selects versions of the manifest from a comma separated specification. Each entry is either a version id
+ * ({@code 1.20.4}), an inclusive range ({@code 1.19..1.21.1}) or an open range ({@code 1.14..}, {@code ..1.16.5}).
+ * An entry can be prefixed with a version type to keep only the matching versions, for example {@code release:1.14..}
+ * selects all releases since 1.14.
+ */
+public final class VersionSelector {
+
+    private static final String RANGE_SEPARATOR = "..";
+
+    private final List<Entry> entries;
+
+    private VersionSelector(final @NotNull List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull VersionSelector parse(final @NotNull String specification) {
+        Objects.requireNonNull(specification, "specification must not be null");
+        final List<Entry> entries = new ArrayList<>();
+        for (final String rawEntry : specification.split(",")) {
+            final String trimmed = rawEntry.trim();
+            if (!trimmed.isEmpty()) {
+                entries.add(parseEntry(trimmed));
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Version selection is empty");
+        }
+        return new VersionSelector(entries);
+    }
+
+    /**
+     * @param versions versions of the manifest, from the newest to the oldest
+     * @return the selected versions without duplicates, from the oldest to the newest
+     */
+    public @NotNull List<Version> select(final @NotNull List<Version> versions) {
+        final Set<Version> selected = new LinkedHashSet<>();
+        for (final Entry entry : this.entries) {
+            selected.addAll(entry.select(versions));
+        }
+        return List.copyOf(selected);
+    }
+
+    private static Entry parseEntry(final String entry) {
+        VersionType type = null;
+        String value = entry;
+        final int typeSeparator = entry.indexOf(':');
+        if (typeSeparator != -1) {
+            final String rawType = entry.substring(0, typeSeparator);
+            type = VersionType.fromString(rawType);
+            if (type == null) {
+                throw new IllegalArgumentException("Invalid version type: '" + rawType + "'");
+            }
+            value = entry.substring(typeSeparator + 1);
+        }
+        final int rangeSeparator = value.indexOf(RANGE_SEPARATOR);
+        if (rangeSeparator == -1) {
+            return new Entry(type, value, value, false);
+        }
+        final String from = value.substring(0, rangeSeparator);
+        final String to = value.substring(rangeSeparator + RANGE_SEPARATOR.length());
+        return new Entry(type, from.isEmpty() ? null : from, to.isEmpty() ? null : to, true);
+    }
+
+    private record Entry(VersionType type, String from, String to, boolean range) {
+
+        private List<Version> select(final List<Version> versions) {
+            // The manifest lists the newest version first
+            final int newest = this.to != null ? indexOf(versions, this.to) : 0;
+            final int oldest = this.from != null ? indexOf(versions, this.from) : versions.size() - 1;
+            if (newest > oldest) {
+                throw new IllegalArgumentException("Invalid range: '" + this.from + "' is newer than '" + this.to + "'");
+            }
+            final List<Version> selected = new ArrayList<>();
+            for (int i = oldest; i >= newest; i--) {
+                final Version version = versions.get(i);
+                if (this.type == null || version.type() == this.type) {
+                    selected.add(version);
+                }
+            }
+            if (!this.range && selected.isEmpty()) {
+                throw new IllegalArgumentException("Version '" + this.from + "' is not a " + this.type.name().toLowerCase());
+            }
+            return selected;
+        }
+
+        private static int indexOf(final List<Version> versions, final String id) {
+            for (int i = 0; i < versions.size(); i++) {
+                if (versions.get(i).id().equals(id)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Version '" + id + "' is not found!");
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+final class AsyncRequests {
+
+    private AsyncRequests() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * Runs a blocking call on a shared I/O executor, never on the common pool whose few threads are meant for
+     * computations and are also used by the parallel streams and the remapper.
+     */
+    static <T> @NotNull CompletableFuture<T> supply(final @NotNull RequestCall<T> call) {
+        return supply(call, executor());
+    }
+
+    /**
+     * @return the shared I/O executor, it lives as long as the application and is never shut down
+     */
+    static @NotNull Executor executor() {
+        return ExecutorHolder.INSTANCE;
+    }
+
+    static <T> @NotNull CompletableFuture<T> supply(final @NotNull RequestCall<T> call, final @NotNull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (final RequestHttpException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    static @NotNull RequestHttpException toRequestException(final @NotNull Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof final RequestHttpException exception) {
+            return exception;
+        }
+        return new RequestHttpException(cause);
+    }
+
+    private static final class ExecutorHolder {
+
+        private static final ExecutorService INSTANCE = TunedHttpClients.newExecutor();
+
+        private ExecutorHolder() throws IllegalAccessException {
+            throw new IllegalAccessException("You cannot instantiate a holder class");
+        }
+
+    }
+
+    @FunctionalInterface
+    interface RequestCall<T> {
+
+        T call() throws RequestHttpException;
+
+    }
+
+}
\ No newline at end of file
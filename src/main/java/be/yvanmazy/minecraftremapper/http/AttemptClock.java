@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+/**
+ * Measures the active time of a request attempt, which excludes the time it spent queued for a connection permit. An
+ * attempt behind other downloads of the same host must not time out before it even started.
+ */
+final class AttemptClock {
+
+    private static final ThreadLocal<AttemptClock> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private long queued;
+    private long queuedSince;
+    private boolean queueing;
+
+    /**
+     * Measures the requests sent by the current thread with this clock, until {@link #unbind()}.
+     */
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Pauses the clock of the current thread, if any, while it waits for a connection permit.
+     */
+    static void startQueueing() {
+        final AttemptClock clock = CURRENT.get();
+        if (clock != null) {
+            clock.pause();
+        }
+    }
+
+    static void stopQueueing() {
+        final AttemptClock clock = CURRENT.get();
+        if (clock != null) {
+            clock.resume();
+        }
+    }
+
+    /**
+     * @return the nanoseconds elapsed between the start of the attempt and the given time, minus the time spent queued
+     */
+    synchronized long active(final long now) {
+        return now - this.start - this.queued - (this.queueing ? now - this.queuedSince : 0L);
+    }
+
+    private synchronized void pause() {
+        if (!this.queueing) {
+            this.queueing = true;
+            this.queuedSince = System.nanoTime();
+        }
+    }
+
+    private synchronized void resume() {
+        if (this.queueing) {
+            this.queueing = false;
+            this.queued += System.nanoTime() - this.queuedSince;
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shares a single in-flight transfer between concurrent requests of the same url. In-memory bodies are handed to every
+ * caller, and a streamed download is copied from the file written by the first caller to the destination of the
+ * others once it is complete. Concurrent resumes of the same file share the transfer of the first one.
+ */
+final class CoalescingRequestHttpClient implements RequestHttpClient {
+
+    private final RequestHttpClient delegate;
+    private final ConcurrentMap<String, CompletableFuture<String>> strings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> bytes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ConditionalKey, CompletableFuture<ConditionalResponse<byte[]>>> conditionals =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DownloadFlight> downloads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ResumeKey, CompletableFuture<String>> resumes = new ConcurrentHashMap<>();
+
+    CoalescingRequestHttpClient(final @NotNull RequestHttpClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+    }
+
+    @Override
+    public @NotNull String getString(final @NotNull String url) throws RequestHttpException {
+        return coalesce(this.strings, url, () -> this.delegate.getString(url));
+    }
+
+    @Override
+    public byte @NotNull [] getBytes(final @NotNull String url) throws RequestHttpException {
+        final CompletableFuture<byte[]> created = new CompletableFuture<>();
+        final CompletableFuture<byte[]> existing = this.bytes.putIfAbsent(url, created);
+        // Arrays are mutable, the shared one is never handed out and every caller, the leader too, gets its own copy
+        if (existing != null) {
+            return await(existing, url).clone();
+        }
+        return lead(this.bytes, url, created, () -> this.delegate.getBytes(url)).clone();
+    }
+
+    @Override
+    public <T> @NotNull ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                              final @Nullable CacheValidators validators,
+                                                              final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        // The body is buffered once and parsed by each caller with its own reader
+        final ConditionalResponse<byte[]> response = coalesce(this.conditionals,
+                new ConditionalKey(url, validators),
+                () -> this.delegate.getConditional(url, validators, InputStream::readAllBytes));
+        if (response.notModified() || response.body() == null) {
+            return new ConditionalResponse<>(response.notModified(), null, response.validators());
+        }
+        try (final InputStream stream = new ByteArrayInputStream(response.body())) {
+            return new ConditionalResponse<>(false, reader.read(stream), response.validators());
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to read body of '" + url + "'", e);
+        }
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        return this.coalesceDownload(url, destination, () -> this.delegate.download(url, destination));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        return this.coalesceDownload(url, destination, () -> this.delegate.download(url, destination, segments));
+    }
+
+    @Override
+    public @NotNull String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        // A resumed transfer depends on what is already on disk, it is only shared with callers completing the same file
+        return coalesce(this.resumes,
+                new ResumeKey(url, destination.toAbsolutePath().normalize()),
+                () -> this.delegate.resume(url, destination, offset));
+    }
+
+    private String coalesceDownload(final String url, final Path destination, final AsyncRequests.RequestCall<String> call)
+            throws RequestHttpException {
+        final Path target = destination.toAbsolutePath().normalize();
+        while (true) {
+            final DownloadFlight created = new DownloadFlight(target);
+            final DownloadFlight existing = this.downloads.putIfAbsent(url, created);
+            if (existing == null) {
+                return this.leadDownload(url, created, call);
+            }
+            final CompletableFuture<String> result = existing.join(target);
+            if (result != null) {
+                return await(result, url);
+            }
+            // The flight was completing, wait for it to leave the map and try again
+            this.downloads.remove(url, existing);
+        }
+    }
+
+    private String leadDownload(final String url, final DownloadFlight flight, final AsyncRequests.RequestCall<String> call)
+            throws RequestHttpException {
+        final String sha1;
+        try {
+            sha1 = call.call();
+        } catch (final RequestHttpException | RuntimeException e) {
+            for (final Waiter waiter : flight.close()) {
+                waiter.result().completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            this.downloads.remove(url, flight);
+        }
+        // Copies are made before returning, while the leader's file is guaranteed to be untouched
+        for (final Waiter waiter : flight.close()) {
+            if (waiter.destination().equals(flight.destination())) {
+                waiter.result().complete(sha1);
+                continue;
+            }
+            try {
+                Files.copy(flight.destination(), waiter.destination(), StandardCopyOption.REPLACE_EXISTING);
+                waiter.result().complete(sha1);
+            } catch (final IOException e) {
+                waiter.result().completeExceptionally(new RequestHttpException("Failed to copy shared download of '" + url + "'", e));
+            }
+        }
+        return sha1;
+    }
+
+    private static <K, T> T coalesce(final ConcurrentMap<K, CompletableFuture<T>> inFlight,
+                                     final K key,
+                                     final AsyncRequests.RequestCall<T> call) throws RequestHttpException {
+        final CompletableFuture<T> created = new CompletableFuture<>();
+        final CompletableFuture<T> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return await(existing, key);
+        }
+        return lead(inFlight, key, created, call);
+    }
+
+    private static <K, T> T lead(final ConcurrentMap<K, CompletableFuture<T>> inFlight,
+                                 final K key,
+                                 final CompletableFuture<T> future,
+                                 final AsyncRequests.RequestCall<T> call) throws RequestHttpException {
+        try {
+            final T result = call.call();
+            future.complete(result);
+            return result;
+        } catch (final RequestHttpException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <T> T await(final CompletableFuture<T> future, final Object key) throws RequestHttpException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestHttpException("Interrupted while waiting for shared request of '" + key + "'", e);
+        } catch (final ExecutionException e) {
+            throw new RequestHttpException("Shared request of '" + key + "' failed", AsyncRequests.toRequestException(e));
+        }
+    }
+
+    private record ConditionalKey(String url, CacheValidators validators) {
+
+        @Override
+        public String toString() {
+            return this.url;
+        }
+
+    }
+
+    private record ResumeKey(String url, Path destination) {
+
+        @Override
+        public String toString() {
+            return this.url;
+        }
+
+    }
+
+    private record Waiter(Path destination, CompletableFuture<String> result) {
+
+    }
+
+    private static final class DownloadFlight {
+
+        private final Path destination;
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean closed;
+
+        private DownloadFlight(final Path destination) {
+            this.destination = destination;
+        }
+
+        private Path destination() {
+            return this.destination;
+        }
+
+        /**
+         * @return the future completed once the file is available at the given destination, or {@code null} when
+         * the flight no longer accepts waiters
+         */
+        private synchronized CompletableFuture<String> join(final Path destination) {
+            if (this.closed) {
+                return null;
+            }
+            final CompletableFuture<String> result = new CompletableFuture<>();
+            this.waiters.add(new Waiter(destination, result));
+            return result;
+        }
+
+        private synchronized List<Waiter> close() {
+            this.closed = true;
+            final List<Waiter> waiters = List.copyOf(this.waiters);
+            this.waiters.clear();
+            return waiters;
+        }
+
+    }
+
+}
\ No newline at end of file
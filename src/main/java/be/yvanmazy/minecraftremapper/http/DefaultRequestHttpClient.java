@@ -24,21 +24,51 @@
 
 package be.yvanmazy.minecraftremapper.http;
 
+import be.yvanmazy.minecraftremapper.http.exception.HttpStatusException;
 import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.util.HashUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 final class DefaultRequestHttpClient implements RequestHttpClient {
 
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
     private final HttpClient client;
+    private final Executor executor;
 
     public DefaultRequestHttpClient(final @NotNull HttpClient client) {
+        this(client, client.executor().orElse(ForkJoinPool.commonPool()));
+    }
+
+    public DefaultRequestHttpClient(final @NotNull HttpClient client, final @NotNull Executor executor) {
         this.client = Objects.requireNonNull(client, "client must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
     }
 
     @Override
@@ -51,13 +81,381 @@ final class DefaultRequestHttpClient implements RequestHttpClient {
         return this.get(url, HttpResponse.BodyHandlers.ofByteArray());
     }
 
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        final TransferGuard guard = new TransferGuard();
+        final HttpResponse<String> response = this.transfer(this.newRequest(url).build(), guard, fileHandler(destination, guard));
+        final String sha1 = response.body();
+        if (sha1 == null) {
+            throw statusException(url, response);
+        }
+        return sha1;
+    }
+
+    @Override
+    public @NotNull <T> ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                             final @Nullable CacheValidators validators,
+                                                             final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        final HttpRequest.Builder builder = this.newRequest(url);
+        if (validators != null) {
+            if (validators.etag() != null) {
+                builder.header("If-None-Match", validators.etag());
+            }
+            if (validators.lastModified() != null) {
+                builder.header("If-Modified-Since", validators.lastModified());
+            }
+        }
+        final HttpResponse<InputStream> response = this.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (final InputStream stream = response.body()) {
+            final HttpHeaders headers = response.headers();
+            final CacheValidators newValidators = new CacheValidators(headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null));
+            if (response.statusCode() == 304) {
+                return new ConditionalResponse<>(true, null, validators != null && newValidators.isEmpty() ? validators : newValidators);
+            }
+            if (response.statusCode() / 100 != 2) {
+                throw statusException(url, response);
+            }
+            return new ConditionalResponse<>(false, reader.read(stream), newValidators);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to read body of '" + url + "'", e);
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<String> getStringAsync(final @NotNull String url) {
+        return this.getAsync(url, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Override
+    public @NotNull CompletableFuture<byte[]> getBytesAsync(final @NotNull String url) {
+        return this.getAsync(url, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Override
+    public @NotNull CompletableFuture<String> downloadAsync(final @NotNull String url, final @NotNull Path destination) {
+        final HttpRequest request;
+        try {
+            request = this.newRequest(url).build();
+        } catch (final RequestHttpException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return this.sendAsync(request, fileHandler(destination, new TransferGuard())).thenCompose(response -> {
+            final String sha1 = response.body();
+            if (sha1 == null) {
+                return CompletableFuture.failedFuture(statusException(url, response));
+            }
+            return CompletableFuture.completedFuture(sha1);
+        });
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        if (segments <= 1) {
+            return this.download(url, destination);
+        }
+        final long length = this.probeRangeLength(url);
+        final int count = (int) Math.min(segments, length / MIN_SEGMENT_SIZE);
+        if (count <= 1) {
+            return this.download(url, destination);
+        }
+        try {
+            if (!this.downloadRanges(url, destination, length, count)) {
+                return this.download(url, destination);
+            }
+            // Segments complete out of order, so the file is hashed once written, from the page cache and through the
+            // single buffer of HashUtil, instead of keeping segments that arrive early in memory
+            return HashUtil.hash(destination);
+        } catch (final IOException e) {
+            throw new RequestHttpException(e);
+        }
+    }
+
+    @Override
+    public @NotNull String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        if (offset <= 0L) {
+            return this.download(url, destination);
+        }
+        final MessageDigest digest;
+        try {
+            digest = HashUtil.newSha1();
+            HashUtil.update(digest, destination, offset);
+        } catch (final IOException e) {
+            throw new RequestHttpException(e);
+        }
+        final HttpRequest request = this.newRequest(url).header("Range", "bytes=" + offset + "-").build();
+        final TransferGuard guard = new TransferGuard();
+        final HttpResponse<String> response = this.transfer(request, guard, info -> switch (info.statusCode()) {
+            case 206 -> guard.register(new FileDownloadSubscriber(destination, offset, digest));
+            case 200 -> guard.register(new FileDownloadSubscriber(destination));
+            default -> HttpResponse.BodySubscribers.replacing(null);
+        });
+        if (response.statusCode() == 416) {
+            // Nothing left to fetch, the file is already complete
+            return HashUtil.toHex(digest.digest());
+        }
+        final String sha1 = response.body();
+        if (sha1 == null) {
+            throw statusException(url, response);
+        }
+        return sha1;
+    }
+
+    private long probeRangeLength(final @NotNull String url) throws RequestHttpException {
+        final HttpRequest request = this.newRequest(url).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        final HttpResponse<Void> response = this.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            return -1L;
+        }
+        final HttpHeaders headers = response.headers();
+        if (!headers.firstValue("Accept-Ranges").map(value -> value.equalsIgnoreCase("bytes")).orElse(false)) {
+            return -1L;
+        }
+        return headers.firstValueAsLong("Content-Length").orElse(-1L);
+    }
+
+    /**
+     * @return {@code false} if the server does not answer the ranges, the destination must be downloaded again. On
+     * failure, the destination is truncated to the bytes received contiguously from its start.
+     */
+    private boolean downloadRanges(final @NotNull String url, final @NotNull Path destination, final long length, final int count)
+            throws IOException, RequestHttpException {
+        try (final FileChannel channel = FileChannel.open(destination,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long segmentSize = (length + count - 1) / count;
+            final TransferGuard guard = new TransferGuard();
+            final AtomicBoolean rejected = new AtomicBoolean();
+            final AtomicReferenceArray<RangeWriteSubscriber> subscribers = new AtomicReferenceArray<>(count);
+            final List<CompletableFuture<HttpResponse<Long>>> futures = new ArrayList<>(count);
+            boolean complete = false;
+            try {
+                // Preallocate the whole file so that every segment can be written at its final position
+                channel.write(ByteBuffer.allocate(1), length - 1);
+
+                for (int i = 0; i < count && !rejected.get(); i++) {
+                    final int index = i;
+                    final long start = i * segmentSize;
+                    final long end = Math.min(length, start + segmentSize) - 1;
+                    // Over HTTP/2 every segment would be multiplexed on a single connection, HTTP/1.1 opens one per segment
+                    final HttpRequest request = this.newRequest(url)
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .header("Range", "bytes=" + start + "-" + end)
+                            .build();
+                    futures.add(this.client.sendAsync(request, info -> {
+                        if (info.statusCode() != 206) {
+                            // The ranges are not honored, stop every segment instead of letting each fetch a whole body
+                            rejected.set(true);
+                            guard.abort();
+                            return new CancellingSubscriber<>();
+                        }
+                        final RangeWriteSubscriber subscriber = guard.register(new RangeWriteSubscriber(channel, start));
+                        subscribers.set(index, subscriber);
+                        return subscriber;
+                    }));
+                }
+
+                awaitRanges(futures);
+                for (int i = 0; i < futures.size(); i++) {
+                    final long start = i * segmentSize;
+                    final long expected = Math.min(length, start + segmentSize) - start;
+                    final Long written = futures.get(i).join().body();
+                    if (written == null || written != expected) {
+                        return false;
+                    }
+                }
+                complete = futures.size() == count;
+            } catch (final ExecutionException e) {
+                if (rejected.get()) {
+                    return false;
+                }
+                throw AsyncRequests.toRequestException(e);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestHttpException("Interrupted while downloading '" + url + "'", e);
+            } finally {
+                if (!complete) {
+                    guard.abort();
+                    futures.forEach(future -> future.cancel(true));
+                    // Keeps a valid prefix, which the next attempt resumes with a single stream
+                    truncate(destination, channel, contiguousLength(subscribers, length, segmentSize));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits, interruptibly, until every range is received or one of them failed.
+     */
+    private static void awaitRanges(final List<CompletableFuture<HttpResponse<Long>>> futures)
+            throws ExecutionException, InterruptedException {
+        final CompletableFuture<Void> failure = new CompletableFuture<>();
+        for (final CompletableFuture<HttpResponse<Long>> future : futures) {
+            future.whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    failure.completeExceptionally(throwable);
+                }
+            });
+        }
+        CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)), failure).get();
+    }
+
+    private static void truncate(final @NotNull Path destination, final @NotNull FileChannel channel, final long size)
+            throws IOException {
+        // The flag would make the channel close itself instead of truncating, it is restored once done
+        final boolean interrupted = Thread.interrupted();
+        try {
+            if (channel.isOpen()) {
+                channel.truncate(size);
+            } else {
+                // Already closed by an interrupt
+                try (final FileChannel reopened = FileChannel.open(destination, StandardOpenOption.WRITE)) {
+                    reopened.truncate(size);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static long contiguousLength(final AtomicReferenceArray<RangeWriteSubscriber> subscribers,
+                                         final long length,
+                                         final long segmentSize) {
+        long contiguous = 0L;
+        for (int i = 0; i < subscribers.length(); i++) {
+            final RangeWriteSubscriber subscriber = subscribers.get(i);
+            final long written = subscriber != null ? subscriber.getWritten() : 0L;
+            contiguous += written;
+            if (written < Math.min(length, (i + 1) * segmentSize) - i * segmentSize) {
+                break;
+            }
+        }
+        return contiguous;
+    }
+
     private <T> T get(final @NotNull String url, final @NotNull HttpResponse.BodyHandler<T> bodyHandler) throws RequestHttpException {
-        final HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
+        final HttpResponse<T> response = this.send(this.newRequest(url).build(), bodyHandler);
+        if (response.statusCode() / 100 != 2) {
+            throw statusException(url, response);
+        }
+        return response.body();
+    }
+
+    private <T> CompletableFuture<T> getAsync(final @NotNull String url, final @NotNull HttpResponse.BodyHandler<T> bodyHandler) {
+        final HttpRequest request;
+        try {
+            request = this.newRequest(url).build();
+        } catch (final RequestHttpException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return this.sendAsync(request, bodyHandler).thenCompose(response -> {
+            if (response.statusCode() / 100 != 2) {
+                return CompletableFuture.failedFuture(statusException(url, response));
+            }
+            return CompletableFuture.completedFuture(response.body());
+        });
+    }
+
+    private HttpRequest.Builder newRequest(final @NotNull String url) throws RequestHttpException {
         try {
-            return this.client.send(request, bodyHandler).body();
+            return HttpRequest.newBuilder().uri(URI.create(url)).GET();
+        } catch (final IllegalArgumentException e) {
+            throw new RequestHttpException("Invalid url: '" + url + "'", e);
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(final @NotNull HttpRequest request,
+                                                             final @NotNull HttpResponse.BodyHandler<T> bodyHandler) {
+        final CompletableFuture<HttpResponse<T>> exchange = this.client.sendAsync(request, bodyHandler);
+        final CompletableFuture<HttpResponse<T>> future = exchange.handleAsync((response, throwable) -> {
+            if (throwable != null) {
+                throw new CompletionException(AsyncRequests.toRequestException(throwable));
+            }
+            return response;
+        }, this.executor);
+        // Cancelling the returned future aborts the underlying exchange
+        future.whenComplete((response, throwable) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private static HttpResponse.BodyHandler<String> fileHandler(final @NotNull Path destination, final @NotNull TransferGuard guard) {
+        return info -> {
+            if (info.statusCode() / 100 != 2) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            return guard.register(new FileDownloadSubscriber(destination));
+        };
+    }
+
+    private static HttpStatusException statusException(final @NotNull String url, final @NotNull HttpResponse<?> response) {
+        return new HttpStatusException("Unexpected status code " + response.statusCode() + " for '" + url + "'", response.statusCode());
+    }
+
+    private <T> HttpResponse<T> send(final @NotNull HttpRequest request,
+                                     final @NotNull HttpResponse.BodyHandler<T> bodyHandler) throws RequestHttpException {
+        try {
+            return this.client.send(request, bodyHandler);
+        } catch (final Exception e) {
+            throw new RequestHttpException(e);
+        }
+    }
+
+    /**
+     * Sends a request writing its body to a file. When the calling thread is interrupted, the writes are stopped before
+     * returning, so that the file is not modified anymore.
+     */
+    private <T> HttpResponse<T> transfer(final @NotNull HttpRequest request,
+                                         final @NotNull TransferGuard guard,
+                                         final @NotNull HttpResponse.BodyHandler<T> bodyHandler) throws RequestHttpException {
+        try {
+            return this.client.send(request, bodyHandler);
+        } catch (final InterruptedException e) {
+            guard.abort();
+            Thread.currentThread().interrupt();
+            throw new RequestHttpException("Interrupted while downloading '" + request.uri() + "'", e);
         } catch (final Exception e) {
+            guard.abort();
             throw new RequestHttpException(e);
         }
     }
 
+    /**
+     * Cancels the body as soon as it is subscribed, so that the connection does not transfer it.
+     */
+    private static final class CancellingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(final List<ByteBuffer> items) {
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.util.HashUtil;
+import be.yvanmazy.minecraftremapper.util.HashingChannel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Writes the response body to a file as buffers arrive and computes the SHA-1 on the fly.
+ * Only one buffer is requested at a time, so the heap never holds more than a single chunk of the body.
+ * When an offset is given, the body is appended after the first {@code offset} bytes of the file and the digest
+ * is expected to already contain them. The file always holds a prefix of the body, written in order.
+ */
+final class FileDownloadSubscriber implements HttpResponse.BodySubscriber<String>, TransferGuard.Abortable {
+
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+    private final Path destination;
+    private final long offset;
+
+    private Flow.Subscription subscription;
+    private MessageDigest digest;
+    private HashingChannel channel;
+    private boolean aborted;
+
+    FileDownloadSubscriber(final @NotNull Path destination) {
+        this(destination, 0L, null);
+    }
+
+    FileDownloadSubscriber(final @NotNull Path destination, final long offset, final MessageDigest digest) {
+        this.destination = Objects.requireNonNull(destination, "destination must not be null");
+        this.offset = offset;
+        this.digest = digest;
+    }
+
+    @Override
+    public CompletionStage<String> getBody() {
+        return this.result;
+    }
+
+    @Override
+    public synchronized void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (this.aborted) {
+            // The file is left untouched
+            subscription.cancel();
+            return;
+        }
+        try {
+            if (this.digest == null) {
+                this.digest = HashUtil.newSha1();
+            }
+            final FileChannel file = FileChannel.open(this.destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            file.truncate(this.offset);
+            file.position(this.offset);
+            this.channel = new HashingChannel(file, this.digest);
+        } catch (final IOException e) {
+            subscription.cancel();
+            this.fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onNext(final List<ByteBuffer> items) {
+        if (this.aborted || this.result.isDone()) {
+            return;
+        }
+        try {
+            for (final ByteBuffer buffer : items) {
+                while (buffer.hasRemaining()) {
+                    this.channel.write(buffer);
+                }
+            }
+        } catch (final IOException e) {
+            this.subscription.cancel();
+            this.fail(e);
+            return;
+        }
+        this.subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onError(final Throwable throwable) {
+        this.fail(throwable);
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        if (this.aborted || this.result.isDone()) {
+            return;
+        }
+        try {
+            this.channel.close();
+        } catch (final IOException e) {
+            this.result.completeExceptionally(e);
+            return;
+        }
+        this.result.complete(this.channel.digest());
+    }
+
+    @Override
+    public synchronized void abort() {
+        if (this.aborted) {
+            return;
+        }
+        this.aborted = true;
+        if (this.subscription != null) {
+            this.subscription.cancel();
+        }
+        this.fail(new IOException("Transfer aborted"));
+    }
+
+    private void fail(final Throwable throwable) {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (final IOException e) {
+                throwable.addSuppressed(e);
+            }
+        }
+        this.result.completeExceptionally(throwable);
+    }
+
+}
\ No newline at end of file
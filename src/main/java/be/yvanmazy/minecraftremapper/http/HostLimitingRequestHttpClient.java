@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of requests running at the same time against each host, so that concurrent jobs queue up on a
+ * few reused connections instead of opening new ones. A segmented download holds one permit per segment.
+ */
+final class HostLimitingRequestHttpClient implements RequestHttpClient {
+
+    private final RequestHttpClient delegate;
+    private final int maxPerHost;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    HostLimitingRequestHttpClient(final @NotNull RequestHttpClient delegate, final int maxPerHost) {
+        if (maxPerHost < 1) {
+            throw new IllegalArgumentException("maxPerHost must be at least 1");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.maxPerHost = maxPerHost;
+    }
+
+    @Override
+    public @NotNull String getString(final @NotNull String url) throws RequestHttpException {
+        return this.limit(url, 1, () -> this.delegate.getString(url));
+    }
+
+    @Override
+    public byte @NotNull [] getBytes(final @NotNull String url) throws RequestHttpException {
+        return this.limit(url, 1, () -> this.delegate.getBytes(url));
+    }
+
+    @Override
+    public <T> @NotNull ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                              final @Nullable CacheValidators validators,
+                                                              final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        return this.limit(url, 1, () -> this.delegate.getConditional(url, validators, reader));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        return this.limit(url, 1, () -> this.delegate.download(url, destination));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        return this.limit(url, Math.max(1, Math.min(segments, this.maxPerHost)), () -> this.delegate.download(url, destination, segments));
+    }
+
+    @Override
+    public @NotNull String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        return this.limit(url, 1, () -> this.delegate.resume(url, destination, offset));
+    }
+
+    private <T> T limit(final String url, final int count, final AsyncRequests.RequestCall<T> call) throws RequestHttpException {
+        final Semaphore semaphore = this.permits.computeIfAbsent(host(url), host -> new Semaphore(this.maxPerHost, true));
+        // Queueing does not count toward the timeout of the attempt, only toward the deadline of the whole request
+        AttemptClock.startQueueing();
+        try {
+            semaphore.acquire(count);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestHttpException("Interrupted while waiting for a connection to '" + url + "'", e);
+        } finally {
+            AttemptClock.stopQueueing();
+        }
+        try {
+            return call.call();
+        } finally {
+            semaphore.release(count);
+        }
+    }
+
+    private static String host(final String url) {
+        try {
+            final String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (final IllegalArgumentException e) {
+            // Rejected by the delegate with a proper error
+            return "";
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Writes one {@code Range} segment of a body at its absolute position in a shared, preallocated file. Bytes are written
+ * in order, so the segment always holds {@link #getWritten()} valid bytes from its start.
+ */
+final class RangeWriteSubscriber implements HttpResponse.BodySubscriber<Long>, TransferGuard.Abortable {
+
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private final FileChannel channel;
+    private long position;
+    private long written;
+
+    private Flow.Subscription subscription;
+    private boolean aborted;
+
+    RangeWriteSubscriber(final @NotNull FileChannel channel, final long position) {
+        this.channel = Objects.requireNonNull(channel, "channel must not be null");
+        this.position = position;
+    }
+
+    @Override
+    public CompletionStage<Long> getBody() {
+        return this.result;
+    }
+
+    @Override
+    public synchronized void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (this.aborted) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onNext(final List<ByteBuffer> items) {
+        if (this.aborted || this.result.isDone()) {
+            return;
+        }
+        try {
+            for (final ByteBuffer buffer : items) {
+                while (buffer.hasRemaining()) {
+                    final int count = this.channel.write(buffer, this.position);
+                    this.position += count;
+                    this.written += count;
+                }
+            }
+        } catch (final IOException e) {
+            this.subscription.cancel();
+            this.result.completeExceptionally(e);
+            return;
+        }
+        this.subscription.request(1);
+    }
+
+    @Override
+    public synchronized void abort() {
+        this.aborted = true;
+        if (this.subscription != null) {
+            this.subscription.cancel();
+        }
+        this.result.completeExceptionally(new IOException("Transfer aborted"));
+    }
+
+    synchronized long getWritten() {
+        return this.written;
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.result.complete(this.written);
+    }
+
+}
\ No newline at end of file
@@ -25,14 +25,29 @@
 package be.yvanmazy.minecraftremapper.http;
 
 import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.store.ArtifactStore;
+import be.yvanmazy.minecraftremapper.util.HashUtil;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 public interface RequestHttpClient {
 
+    int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+
     @Contract("-> new")
     @NotNull
     static RequestHttpClient newDefault() {
@@ -53,9 +68,173 @@ public interface RequestHttpClient {
         return new DefaultRequestHttpClient(httpClient);
     }
 
+    /**
+     * @param executor executor running the completion stages of asynchronous requests
+     */
+    @Contract("_, _ -> new")
+    @NotNull
+    static RequestHttpClient newDefault(final @NotNull HttpClient httpClient, final @NotNull Executor executor) {
+        return new DefaultRequestHttpClient(httpClient, executor);
+    }
+
+    /**
+     * Creates a client preferring HTTP/2, with a connect timeout, following redirects and running on virtual threads
+     * when the runtime provides them. Every call creates a new connection pool, prefer {@link #shared()} unless a
+     * dedicated client is needed.
+     */
+    @Contract("-> new")
+    @NotNull
+    static RequestHttpClient newTuned() {
+        return TunedHttpClients.newClient();
+    }
+
+    /**
+     * Returns the client shared by the whole JVM: a {@link #newTuned() tuned} client with the
+     * {@link ResiliencePolicy#DEFAULT default} resilience policy, at most {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}
+     * concurrent requests per host, and coalescing of concurrent requests of the same url. It is created on first use
+     * and lives as long as the JVM; its threads never prevent the JVM from exiting, so it does not need to be closed.
+     */
+    @NotNull
+    static RequestHttpClient shared() {
+        return TunedHttpClients.SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Wraps the given client so that at most {@code maxPerHost} requests run against the same host at the same time.
+     * It belongs below {@link #resilient(RequestHttpClient, ResiliencePolicy)}, so that permits are only held by
+     * running attempts and not through backoffs.
+     */
+    @Contract("_, _ -> new")
+    @NotNull
+    static RequestHttpClient hostLimited(final @NotNull RequestHttpClient delegate, final int maxPerHost) {
+        return new HostLimitingRequestHttpClient(delegate, maxPerHost);
+    }
+
+    /**
+     * Creates a client serving files from the given store. Misses are fetched with the delegate and added to the
+     * store; without delegate the client is offline and a miss fails immediately.
+     */
+    @Contract("_, _ -> new")
+    @NotNull
+    static RequestHttpClient stored(final @NotNull ArtifactStore store, final @Nullable RequestHttpClient delegate) {
+        return new StoreRequestHttpClient(store, delegate);
+    }
+
+    /**
+     * Wraps the given client so concurrent requests of the same url share a single transfer. A streamed download is
+     * copied to the destination of every caller.
+     */
+    @Contract("_ -> new")
+    @NotNull
+    static RequestHttpClient coalescing(final @NotNull RequestHttpClient delegate) {
+        return new CoalescingRequestHttpClient(delegate);
+    }
+
+    /**
+     * Wraps the given client with retries, deadlines and hedged requests configured by the policy. A failed download
+     * attempt is retried by resuming it from the bytes already written to its destination.
+     */
+    @Contract("_, _ -> new")
+    @NotNull
+    static RequestHttpClient resilient(final @NotNull RequestHttpClient delegate, final @NotNull ResiliencePolicy policy) {
+        return new ResilientRequestHttpClient(delegate, policy);
+    }
+
+    /**
+     * Unwraps the failure of an asynchronous request into the {@link RequestHttpException} it carries.
+     */
+    @NotNull
+    static RequestHttpException unwrap(final @NotNull Throwable throwable) {
+        return AsyncRequests.toRequestException(throwable);
+    }
+
     @NotNull
     String getString(final @NotNull String url) throws RequestHttpException;
 
     byte @NotNull [] getBytes(final @NotNull String url) throws RequestHttpException;
 
+    /**
+     * Sends a conditional request with the given validators and parses the body with the reader, unless the server
+     * answers {@code 304 Not Modified}.
+     */
+    @NotNull
+    default <T> ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                      final @Nullable CacheValidators validators,
+                                                      final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        try (final InputStream stream = new ByteArrayInputStream(this.getBytes(url))) {
+            return new ConditionalResponse<>(false, reader.read(stream), CacheValidators.NONE);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to read body of '" + url + "'", e);
+        }
+    }
+
+    /**
+     * Streams the body of the given url into the destination file.
+     *
+     * @return the SHA-1 of the written content, computed while downloading
+     */
+    @NotNull
+    default String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        final ConditionalResponse<String> response = this.getConditional(url, null, stream -> {
+            final MessageDigest digest = HashUtil.newSha1();
+            try (final OutputStream out = new DigestOutputStream(Files.newOutputStream(destination), digest)) {
+                stream.transferTo(out);
+            }
+            return HashUtil.toHex(digest.digest());
+        });
+        if (response.body() == null) {
+            throw new RequestHttpException("No body received for '" + url + "'");
+        }
+        return response.body();
+    }
+
+    /**
+     * Downloads the given url over up to {@code segments} concurrent {@code Range} requests into a preallocated file.
+     * Falls back to a single stream when the server does not accept byte ranges. On failure, the destination is
+     * truncated to the bytes received contiguously from its start, they can be completed with {@link #resume}.
+     *
+     * @return the SHA-1 of the written content
+     */
+    @NotNull
+    default String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        return this.download(url, destination);
+    }
+
+    /**
+     * Continues a download whose first {@code offset} bytes are already in the destination, using a {@code Range}
+     * request. The whole file is downloaded again when the server ignores the range.
+     *
+     * @return the SHA-1 of the complete file
+     */
+    @NotNull
+    default String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        return this.download(url, destination);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getString(String)}. The future fails with a {@link RequestHttpException}.
+     */
+    @NotNull
+    default CompletableFuture<String> getStringAsync(final @NotNull String url) {
+        return AsyncRequests.supply(() -> this.getString(url));
+    }
+
+    /**
+     * Asynchronous variant of {@link #getBytes(String)}. The future fails with a {@link RequestHttpException}.
+     */
+    @NotNull
+    default CompletableFuture<byte[]> getBytesAsync(final @NotNull String url) {
+        return AsyncRequests.supply(() -> this.getBytes(url));
+    }
+
+    /**
+     * Asynchronous variant of {@link #download(String, Path)}. The future fails with a {@link RequestHttpException}.
+     */
+    @NotNull
+    default CompletableFuture<String> downloadAsync(final @NotNull String url, final @NotNull Path destination) {
+        return AsyncRequests.supply(() -> this.download(url, destination));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Retry, deadline and hedging configuration of {@link RequestHttpClient#resilient(RequestHttpClient, ResiliencePolicy)}.
+ *
+ * @param maxAttempts     maximum number of attempts of a request, including the first one
+ * @param initialBackoff  upper bound of the delay before the first retry, doubled after every attempt
+ * @param maxBackoff      upper bound of the delay between two attempts
+ * @param requestTimeout  deadline of a single attempt of an in-memory request, {@code null} to disable it
+ * @param transferTimeout deadline of a single attempt of a download to a file, {@code null} to disable it
+ * @param totalTimeout    deadline of a request including all its attempts and backoffs, {@code null} to disable it
+ * @param hedgePercentile latency percentile of previous in-memory requests after which a second attempt is sent
+ *                        concurrently, {@code 0} to disable hedging
+ */
+public record ResiliencePolicy(int maxAttempts,
+                               @NotNull Duration initialBackoff,
+                               @NotNull Duration maxBackoff,
+                               @Nullable Duration requestTimeout,
+                               @Nullable Duration transferTimeout,
+                               @Nullable Duration totalTimeout,
+                               double hedgePercentile) {
+
+    public static final ResiliencePolicy DEFAULT = new ResiliencePolicy(4,
+            Duration.ofMillis(500L),
+            Duration.ofSeconds(10L),
+            Duration.ofSeconds(30L),
+            Duration.ofMinutes(5L),
+            Duration.ofMinutes(15L),
+            0.95D);
+
+    public ResiliencePolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        Objects.requireNonNull(initialBackoff, "initialBackoff must not be null");
+        Objects.requireNonNull(maxBackoff, "maxBackoff must not be null");
+        if (hedgePercentile < 0D || hedgePercentile >= 1D) {
+            throw new IllegalArgumentException("hedgePercentile must be between 0 (inclusive) and 1 (exclusive)");
+        }
+    }
+
+    @NotNull
+    public ResiliencePolicy withMaxAttempts(final int maxAttempts) {
+        return new ResiliencePolicy(maxAttempts,
+                this.initialBackoff,
+                this.maxBackoff,
+                this.requestTimeout,
+                this.transferTimeout,
+                this.totalTimeout,
+                this.hedgePercentile);
+    }
+
+    public boolean isHedging() {
+        return this.hedgePercentile > 0D;
+    }
+
+}
\ No newline at end of file
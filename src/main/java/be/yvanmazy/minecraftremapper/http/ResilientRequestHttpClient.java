@@ -0,0 +1,451 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.HttpStatusException;
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retries failed requests with a jittered exponential backoff and bounds every attempt and every request with a
+ * deadline. In-memory requests slower than a percentile of the previous ones are hedged with a concurrent second
+ * attempt, the first successful answer wins.
+ */
+final class ResilientRequestHttpClient implements RequestHttpClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResilientRequestHttpClient.class);
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 425, 429, 500, 502, 503, 504);
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_HEDGE_SAMPLES = 16;
+    private static final long CANCEL_GRACE_MILLIS = 10_000L;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final RequestHttpClient delegate;
+    private final ResiliencePolicy policy;
+    private final Executor executor;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private int latencyIndex;
+
+    ResilientRequestHttpClient(final @NotNull RequestHttpClient delegate, final @NotNull ResiliencePolicy policy) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.policy = Objects.requireNonNull(policy, "policy must not be null");
+        // Shared so that wrapping a client does not leak a pool of threads that nothing would shut down
+        this.executor = AsyncRequests.executor();
+    }
+
+    @Override
+    public @NotNull String getString(final @NotNull String url) throws RequestHttpException {
+        return this.execute(url, this.policy.requestTimeout(), Mode.HEDGED, () -> this.delegate.getString(url));
+    }
+
+    @Override
+    public byte @NotNull [] getBytes(final @NotNull String url) throws RequestHttpException {
+        return this.execute(url, this.policy.requestTimeout(), Mode.HEDGED, () -> this.delegate.getBytes(url));
+    }
+
+    @Override
+    public <T> @NotNull ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                              final @Nullable CacheValidators validators,
+                                                              final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        // The reader belongs to the caller, it is never run twice concurrently
+        return this.execute(url, this.policy.requestTimeout(), Mode.SINGLE, () -> this.delegate.getConditional(url, validators, reader));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        return this.transfer(url, destination, 0L, () -> this.delegate.download(url, destination));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        return this.transfer(url, destination, 0L, () -> this.delegate.download(url, destination, segments));
+    }
+
+    @Override
+    public @NotNull String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        return this.transfer(url, destination, offset, () -> this.delegate.resume(url, destination, offset));
+    }
+
+    /**
+     * Runs the first attempt of a download with the given call, the next ones resume it from the bytes already written.
+     * A failed attempt always leaves a prefix of the body in the destination, so only its trailing bytes are refetched.
+     */
+    private String transfer(final String url,
+                            final Path destination,
+                            final long offset,
+                            final AsyncRequests.RequestCall<String> first) throws RequestHttpException {
+        // Bytes past the offset are not part of the body, a first attempt failing before writing must not keep them
+        try {
+            if (offset <= 0L) {
+                Files.deleteIfExists(destination);
+            } else if (Files.exists(destination) && Files.size(destination) > offset) {
+                try (final FileChannel channel = FileChannel.open(destination, StandardOpenOption.WRITE)) {
+                    channel.truncate(offset);
+                }
+            }
+        } catch (final IOException e) {
+            throw new RequestHttpException(e);
+        }
+        final AtomicBoolean started = new AtomicBoolean();
+        return this.execute(url, this.policy.transferTimeout(), Mode.EXCLUSIVE, () -> {
+            if (started.compareAndSet(false, true)) {
+                return first.call();
+            }
+            final long received;
+            try {
+                received = Files.exists(destination) ? Files.size(destination) : 0L;
+            } catch (final IOException e) {
+                throw new RequestHttpException(e);
+            }
+            LOGGER.debug("Resuming download of '{}' from {} bytes", url, received);
+            return this.delegate.resume(url, destination, received);
+        });
+    }
+
+    private <T> T execute(final String url,
+                          final @Nullable Duration attemptTimeout,
+                          final Mode mode,
+                          final AsyncRequests.RequestCall<T> call) throws RequestHttpException {
+        final Duration totalTimeout = this.policy.totalTimeout();
+        final long deadline = totalTimeout != null ? System.nanoTime() + totalTimeout.toNanos() : NO_DEADLINE;
+        // Measured on the active time of each attempt, the deadline also bounds the time queued for connections
+        final long timeout = attemptTimeout != null ? attemptTimeout.toNanos() : NO_DEADLINE;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (deadline != NO_DEADLINE && deadline - System.nanoTime() <= 0L) {
+                    throw new RequestHttpException("Deadline of '" + url + "' exceeded", new TimeoutException());
+                }
+                if (mode == Mode.HEDGED && this.policy.isHedging()) {
+                    return this.hedged(url, call, timeout, deadline);
+                }
+                final Attempt<T> task = this.submit(call, null);
+                final T result = task.await(url, timeout, deadline, mode == Mode.EXCLUSIVE);
+                if (mode == Mode.HEDGED) {
+                    this.recordLatency(task.elapsed());
+                }
+                return result;
+            } catch (final RequestHttpException e) {
+                if (attempt >= this.policy.maxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                final long backoff = this.backoff(attempt);
+                if (deadline != NO_DEADLINE && System.nanoTime() + backoff >= deadline) {
+                    throw new RequestHttpException("Deadline of '" + url + "' exceeded after " + attempt + " attempts", e);
+                }
+                LOGGER.warn("Attempt {}/{} of '{}' failed, retrying in {} ms: {}",
+                        attempt,
+                        this.policy.maxAttempts(),
+                        url,
+                        TimeUnit.NANOSECONDS.toMillis(backoff),
+                        e.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (final InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RequestHttpException("Interrupted while retrying '" + url + "'", interrupted);
+                }
+            }
+        }
+    }
+
+    private <T> T hedged(final String url, final AsyncRequests.RequestCall<T> call, final long timeout, final long deadline)
+            throws RequestHttpException {
+        final long hedgeDelay = this.hedgeDelay();
+        final BlockingQueue<Attempt<T>> completed = new LinkedBlockingQueue<>();
+        final List<Attempt<T>> running = new ArrayList<>(2);
+        final Attempt<T> first = this.submit(call, completed);
+        running.add(first);
+        try {
+            Attempt<T> done = null;
+            if (hedgeDelay >= 0L) {
+                // Measured on the active time too, a request queued for a connection is not hedged
+                long wait;
+                while (done == null && (wait = Math.min(hedgeDelay - first.active(), first.remaining(timeout, deadline))) > 0L) {
+                    done = completed.poll(wait, TimeUnit.NANOSECONDS);
+                }
+                if (done == null && first.remaining(timeout, deadline) > 0L) {
+                    LOGGER.debug("Hedging request of '{}' after {} ms", url, TimeUnit.NANOSECONDS.toMillis(hedgeDelay));
+                    running.add(this.submit(call, completed));
+                }
+            }
+            while (true) {
+                if (done == null) {
+                    long remaining = Long.MIN_VALUE;
+                    for (final Attempt<T> attempt : running) {
+                        remaining = Math.max(remaining, attempt.remaining(timeout, deadline));
+                    }
+                    if (remaining <= 0L) {
+                        throw new RequestHttpException("Request of '" + url + "' timed out", new TimeoutException());
+                    }
+                    done = remaining == NO_DEADLINE ? completed.take() : completed.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        // An attempt queued for a connection meanwhile may have time left
+                        continue;
+                    }
+                }
+                running.remove(done);
+                try {
+                    final T result = done.result(url);
+                    this.recordLatency(done.elapsed());
+                    return result;
+                } catch (final RequestHttpException e) {
+                    if (running.isEmpty()) {
+                        throw e;
+                    }
+                    done = null;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestHttpException("Interrupted while requesting '" + url + "'", e);
+        } finally {
+            running.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    private <T> Attempt<T> submit(final AsyncRequests.RequestCall<T> call, final @Nullable BlockingQueue<Attempt<T>> completed) {
+        final Attempt<T> attempt = new Attempt<>(call, completed);
+        this.executor.execute(attempt);
+        return attempt;
+    }
+
+    private long backoff(final int attempt) {
+        final long initial = this.policy.initialBackoff().toNanos();
+        final long max = this.policy.maxBackoff().toNanos();
+        final int shift = Math.min(attempt - 1, 30);
+        final long cap = initial > (max >> shift) ? max : Math.min(max, initial << shift);
+        if (cap <= 1L) {
+            return Math.max(cap, 0L);
+        }
+        // Equal jitter: half of the delay is kept so that retries never collapse to zero
+        return cap / 2L + ThreadLocalRandom.current().nextLong(cap / 2L + 1L);
+    }
+
+    private synchronized void recordLatency(final long nanos) {
+        this.latencies[this.latencyIndex] = nanos;
+        this.latencyIndex = (this.latencyIndex + 1) % LATENCY_SAMPLES;
+        if (this.latencyCount < LATENCY_SAMPLES) {
+            this.latencyCount++;
+        }
+    }
+
+    /**
+     * @return the configured percentile of the recent latencies in nanoseconds, or {@code -1} without enough samples
+     */
+    private synchronized long hedgeDelay() {
+        if (this.latencyCount < MIN_HEDGE_SAMPLES) {
+            return -1L;
+        }
+        final long[] sorted = Arrays.copyOf(this.latencies, this.latencyCount);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(this.policy.hedgePercentile() * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+
+    private static boolean isRetryable(final RequestHttpException exception) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof final HttpStatusException statusException) {
+                return RETRYABLE_STATUSES.contains(statusException.getStatusCode());
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause instanceof InterruptedException || cause instanceof IllegalArgumentException) {
+                return false;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private enum Mode {
+
+        /**
+         * In-memory request that can be hedged.
+         */
+        HEDGED,
+        /**
+         * Request with caller side effects, never run twice concurrently.
+         */
+        SINGLE,
+        /**
+         * Request writing to a file, a timed out attempt must stop before the next one starts.
+         */
+        EXCLUSIVE
+
+    }
+
+    private static final class Attempt<T> extends FutureTask<T> {
+
+        private final BlockingQueue<Attempt<T>> completed;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final AttemptClock clock = new AttemptClock();
+        private volatile long end;
+
+        private Attempt(final AsyncRequests.RequestCall<T> call, final @Nullable BlockingQueue<Attempt<T>> completed) {
+            super(call::call);
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            this.clock.bind();
+            try {
+                super.run();
+            } finally {
+                AttemptClock.unbind();
+                this.finished.countDown();
+            }
+        }
+
+        @Override
+        protected void done() {
+            this.end = System.nanoTime();
+            if (this.completed != null && !this.isCancelled()) {
+                this.completed.offer(this);
+            }
+        }
+
+        /**
+         * @return the active time of the finished attempt
+         */
+        private long elapsed() {
+            return this.clock.active(this.end);
+        }
+
+        private long active() {
+            return this.clock.active(System.nanoTime());
+        }
+
+        /**
+         * @return the nanoseconds left before the attempt times out or the request deadline passes, {@link #NO_DEADLINE}
+         * if neither is bounded
+         */
+        private long remaining(final long timeout, final long deadline) {
+            final long now = System.nanoTime();
+            final long attemptLeft = timeout == NO_DEADLINE ? NO_DEADLINE : timeout - this.clock.active(now);
+            final long totalLeft = deadline == NO_DEADLINE ? NO_DEADLINE : deadline - now;
+            return Math.min(attemptLeft, totalLeft);
+        }
+
+        private T await(final String url, final long timeout, final long deadline, final boolean exclusive)
+                throws RequestHttpException {
+            long remaining;
+            while ((remaining = this.remaining(timeout, deadline)) > 0L) {
+                try {
+                    if (remaining != NO_DEADLINE) {
+                        this.get(remaining, TimeUnit.NANOSECONDS);
+                    } else {
+                        this.get();
+                    }
+                    return this.result(url);
+                } catch (final TimeoutException e) {
+                    // The clock was paused if the attempt queued for a connection meanwhile, it may have time left
+                } catch (final InterruptedException e) {
+                    this.cancel(true);
+                    if (exclusive) {
+                        // The caller may inspect the file as soon as this method returns
+                        this.awaitStop();
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new RequestHttpException("Interrupted while requesting '" + url + "'", e);
+                } catch (final ExecutionException | CancellationException e) {
+                    return this.result(url);
+                }
+            }
+            final long active = this.active();
+            this.cancel(true);
+            if (exclusive && !this.awaitStop()) {
+                // Not retryable, a new attempt would write to the same file concurrently
+                throw new RequestHttpException("Timed out attempt of '" + url + "' did not stop within "
+                        + CANCEL_GRACE_MILLIS + " ms", new IllegalStateException("Attempt still running"));
+            }
+            if (deadline != NO_DEADLINE && deadline - System.nanoTime() <= 0L) {
+                throw new RequestHttpException("Deadline of '" + url + "' exceeded", new TimeoutException());
+            }
+            throw new RequestHttpException("Attempt of '" + url + "' timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(active) + " ms", new TimeoutException());
+        }
+
+        private T result(final String url) throws RequestHttpException {
+            try {
+                return this.get();
+            } catch (final ExecutionException e) {
+                throw AsyncRequests.toRequestException(e);
+            } catch (final CancellationException | InterruptedException e) {
+                throw new RequestHttpException("Request of '" + url + "' was cancelled", e);
+            }
+        }
+
+        /**
+         * @return {@code true} if the cancelled attempt has stopped running
+         */
+        private boolean awaitStop() {
+            try {
+                return this.finished.await(CANCEL_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+    }
+
+}
\ No newline at end of file
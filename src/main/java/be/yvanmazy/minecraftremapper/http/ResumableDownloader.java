@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.util.FileUtil;
+import be.yvanmazy.minecraftremapper.util.PropertiesFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Downloads into a {@code .part} file next to the destination and keeps a small checkpoint recording the expected
+ * SHA-1 and the number of bytes received. An interrupted download is resumed with a {@code Range} request on the
+ * next attempt, and the file is only moved to its destination once its checksum is verified.
+ * <p>
+ * A failed transfer leaves a valid prefix in the part file, segmented ones included, so it is resumed with a single
+ * appending stream. Only a process killed during a segmented transfer, whose part file is preallocated, restarts from
+ * zero.
+ */
+public final class ResumableDownloader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumableDownloader.class);
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHECKPOINT_SUFFIX = ".part.checkpoint";
+
+    private final RequestHttpClient httpClient;
+    private final int segments;
+
+    public ResumableDownloader(final @NotNull RequestHttpClient httpClient, final int segments) {
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
+        this.segments = segments;
+    }
+
+    /**
+     * @return the SHA-1 of the downloaded file
+     */
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final @Nullable String expectedSha1)
+            throws RequestHttpException {
+        final Path part = sibling(destination, PART_SUFFIX);
+        final Path checkpointPath = sibling(destination, CHECKPOINT_SUFFIX);
+
+        final long received = this.readReceived(checkpointPath, part, expectedSha1);
+        if (received == 0L) {
+            // The part file may hold an unrelated download, a failed transfer must leave only its own bytes
+            deleteQuietly(part);
+        }
+        // Appending transfers only ever grow the part file, so its size stays a valid checkpoint even after a crash
+        final boolean appending = received > 0L || this.segments <= 1;
+        this.writeCheckpoint(checkpointPath, new Checkpoint(expectedSha1, received, appending));
+
+        final String sha1;
+        try {
+            if (received > 0L) {
+                LOGGER.info("Resuming download of '{}' from {} bytes", destination.getFileName(), received);
+                sha1 = this.httpClient.resume(url, part, received);
+            } else {
+                sha1 = this.httpClient.download(url, part, this.segments);
+            }
+        } catch (final RequestHttpException e) {
+            this.saveProgress(checkpointPath, part, expectedSha1);
+            throw e;
+        }
+
+        if (expectedSha1 != null && !expectedSha1.equals(sha1)) {
+            deleteQuietly(part);
+            deleteQuietly(checkpointPath);
+            throw new RequestHttpException("Checksum mismatch for '" + url + "': expected " + expectedSha1 + " but got " + sha1);
+        }
+        try {
+            FileUtil.moveAtomically(part, destination);
+            Files.deleteIfExists(checkpointPath);
+        } catch (final NoSuchFileException e) {
+            // A shared transfer to the same part file was already finalized by another caller
+            if (Files.notExists(destination)) {
+                throw new RequestHttpException("Failed to finalize download of '" + url + "'", e);
+            }
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to finalize download of '" + url + "'", e);
+        }
+        return sha1;
+    }
+
+    private long readReceived(final Path checkpointPath, final Path part, final String expectedSha1) {
+        if (Files.notExists(checkpointPath) || Files.notExists(part)) {
+            return 0L;
+        }
+        final Checkpoint checkpoint;
+        final long size;
+        try {
+            checkpoint = this.readCheckpoint(checkpointPath);
+            size = Files.size(part);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable download checkpoint '{}'", checkpointPath, e);
+            return 0L;
+        }
+        if (!Objects.equals(checkpoint.sha1(), expectedSha1)) {
+            return 0L;
+        }
+        return checkpoint.appending() ? size : Math.min(size, checkpoint.received());
+    }
+
+    /**
+     * Records the part file after a failed transfer, which only holds bytes received contiguously from the start.
+     */
+    private void saveProgress(final Path checkpointPath, final Path part, final String expectedSha1) {
+        try {
+            final long received = Files.exists(part) ? Files.size(part) : 0L;
+            this.writeCheckpoint(checkpointPath, new Checkpoint(expectedSha1, received, true));
+        } catch (final IOException | RequestHttpException e) {
+            LOGGER.warn("Failed to save download checkpoint '{}'", checkpointPath, e);
+        }
+    }
+
+    private Checkpoint readCheckpoint(final Path path) {
+        final Properties properties = PropertiesFile.load(path);
+        return new Checkpoint(properties.getProperty("sha1"),
+                Long.parseLong(properties.getProperty("received", "0")),
+                Boolean.parseBoolean(properties.getProperty("appending")));
+    }
+
+    private void writeCheckpoint(final Path path, final Checkpoint checkpoint) throws RequestHttpException {
+        final Properties properties = new Properties();
+        if (checkpoint.sha1() != null) {
+            properties.setProperty("sha1", checkpoint.sha1());
+        }
+        properties.setProperty("received", Long.toString(checkpoint.received()));
+        properties.setProperty("appending", Boolean.toString(checkpoint.appending()));
+        try {
+            PropertiesFile.save(properties, path);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to write download checkpoint", e);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to delete '{}'", path, e);
+        }
+    }
+
+    private static Path sibling(final Path path, final String suffix) {
+        return path.toAbsolutePath().resolveSibling(path.getFileName().toString() + suffix);
+    }
+
+    private record Checkpoint(String sha1, long received, boolean appending) {
+
+    }
+
+}
\ No newline at end of file
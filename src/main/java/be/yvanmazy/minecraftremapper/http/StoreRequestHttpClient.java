@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.store.ArtifactStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Serves requests from an {@link ArtifactStore}. Misses are fetched with the delegate and added to the store, or fail
+ * immediately when the client is offline. The content of a url behind a conditional request can change, so it is
+ * only served from the store when the delegate cannot be reached.
+ */
+final class StoreRequestHttpClient implements RequestHttpClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreRequestHttpClient.class);
+
+    private final ArtifactStore store;
+    private final RequestHttpClient delegate;
+
+    StoreRequestHttpClient(final @NotNull ArtifactStore store, final @Nullable RequestHttpClient delegate) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public @NotNull String getString(final @NotNull String url) throws RequestHttpException {
+        return new String(this.getBytes(url), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte @NotNull [] getBytes(final @NotNull String url) throws RequestHttpException {
+        final Path object = this.find(url);
+        if (object != null) {
+            try {
+                return Files.readAllBytes(object);
+            } catch (final IOException e) {
+                throw new RequestHttpException("Failed to read '" + url + "' from the store", e);
+            }
+        }
+        final byte[] bytes = this.requireDelegate(url).getBytes(url);
+        this.store(url, bytes);
+        return bytes;
+    }
+
+    @Override
+    public <T> @NotNull ConditionalResponse<T> getConditional(final @NotNull String url,
+                                                              final @Nullable CacheValidators validators,
+                                                              final @NotNull BodyReader<T> reader) throws RequestHttpException {
+        if (this.delegate != null) {
+            try {
+                final ConditionalResponse<byte[]> response = this.delegate.getConditional(url, validators, InputStream::readAllBytes);
+                if (response.notModified() || response.body() == null) {
+                    return new ConditionalResponse<>(response.notModified(), null, response.validators());
+                }
+                this.store(url, response.body());
+                return new ConditionalResponse<>(false, read(url, response.body(), reader), response.validators());
+            } catch (final RequestHttpException e) {
+                if (this.find(url) == null) {
+                    throw e;
+                }
+                LOGGER.warn("Failed to fetch '{}', using the stored copy: {}", url, e.getMessage());
+            }
+        }
+        final Path object = this.find(url);
+        if (object == null) {
+            throw offlineMiss(url);
+        }
+        try {
+            return new ConditionalResponse<>(false, read(url, Files.readAllBytes(object), reader), CacheValidators.NONE);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to read '" + url + "' from the store", e);
+        }
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination) throws RequestHttpException {
+        final String sha1 = this.serve(url, destination);
+        if (sha1 != null) {
+            return sha1;
+        }
+        return this.store(url, destination, this.requireDelegate(url).download(url, destination));
+    }
+
+    @Override
+    public @NotNull String download(final @NotNull String url, final @NotNull Path destination, final int segments)
+            throws RequestHttpException {
+        final String sha1 = this.serve(url, destination);
+        if (sha1 != null) {
+            return sha1;
+        }
+        return this.store(url, destination, this.requireDelegate(url).download(url, destination, segments));
+    }
+
+    @Override
+    public @NotNull String resume(final @NotNull String url, final @NotNull Path destination, final long offset)
+            throws RequestHttpException {
+        final String sha1 = this.serve(url, destination);
+        if (sha1 != null) {
+            return sha1;
+        }
+        return this.store(url, destination, this.requireDelegate(url).resume(url, destination, offset));
+    }
+
+    /**
+     * Copies the stored file of the url to the destination with a zero-copy channel transfer. The stored file is
+     * checked with {@link ArtifactStore#findVerifiedObject(String)}, which only hashes it again once it changed.
+     *
+     * @return the SHA-1 of the file, or {@code null} on a miss
+     */
+    private @Nullable String serve(final String url, final Path destination) throws RequestHttpException {
+        try {
+            final String sha1 = this.store.lookup(url);
+            if (sha1 == null) {
+                return null;
+            }
+            final Path object = this.store.findVerifiedObject(sha1);
+            if (object == null) {
+                LOGGER.warn("Stored copy of '{}' does not match its SHA-1 {}, evicted it", url, sha1);
+                return null;
+            }
+            // The destination may be a hard link to a stored file, it must not be rewritten in place
+            Files.deleteIfExists(destination);
+            try (final FileChannel in = FileChannel.open(object, StandardOpenOption.READ);
+                 final FileChannel out = FileChannel.open(destination,
+                         StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                final long size = in.size();
+                long position = 0L;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+            return sha1;
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to copy '" + url + "' from the store", e);
+        }
+    }
+
+    private @Nullable Path find(final String url) throws RequestHttpException {
+        try {
+            return this.store.find(url);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to look up '" + url + "' in the store", e);
+        }
+    }
+
+    private void store(final String url, final byte[] bytes) {
+        try {
+            this.store.put(url, bytes);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to add '{}' to the store", url, e);
+        }
+    }
+
+    private String store(final String url, final Path file, final String sha1) {
+        try {
+            this.store.put(url, file, sha1);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to add '{}' to the store", url, e);
+        }
+        return sha1;
+    }
+
+    private RequestHttpClient requireDelegate(final String url) throws RequestHttpException {
+        if (this.delegate == null) {
+            throw offlineMiss(url);
+        }
+        return this.delegate;
+    }
+
+    private static <T> T read(final String url, final byte[] body, final BodyReader<T> reader) throws RequestHttpException {
+        try (final InputStream stream = new ByteArrayInputStream(body)) {
+            return reader.read(stream);
+        } catch (final IOException e) {
+            throw new RequestHttpException("Failed to read body of '" + url + "'", e);
+        }
+    }
+
+    private static RequestHttpException offlineMiss(final String url) {
+        return new RequestHttpException("'" + url + "' is not in the offline store");
+    }
+
+}
\ No newline at end of file
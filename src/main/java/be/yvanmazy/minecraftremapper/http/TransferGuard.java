@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stops the body subscribers of a transfer writing to a file. Once {@link #abort()} has returned, none of them writes
+ * anymore, including the ones registered later by a response arriving late.
+ */
+final class TransferGuard {
+
+    private final List<Abortable> subscribers = new ArrayList<>();
+    private boolean aborted;
+
+    synchronized <S extends Abortable> @NotNull S register(final @NotNull S subscriber) {
+        if (this.aborted) {
+            subscriber.abort();
+        } else {
+            this.subscribers.add(subscriber);
+        }
+        return subscriber;
+    }
+
+    synchronized void abort() {
+        this.aborted = true;
+        this.subscribers.forEach(Abortable::abort);
+    }
+
+    interface Abortable {
+
+        /**
+         * Cancels the subscription and waits for a write in progress, no write happens after this method returns.
+         */
+        void abort();
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class TunedHttpClients {
+
+    static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10L);
+
+    private TunedHttpClients() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * HTTP/2 serves the many small metadata requests over few connections, the segments of a large download ask for
+     * HTTP/1.1 themselves to get a connection each.
+     */
+    static @NotNull HttpClient.Builder newBuilder(final @NotNull ExecutorService executor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor);
+    }
+
+    /**
+     * Uses a virtual thread per task when the runtime supports it (Java 21+), and a cached pool of daemon threads
+     * otherwise. The lookup is reflective so that the project still targets Java 17.
+     */
+    static @NotNull ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            final AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "remapper-http-client-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static @NotNull RequestHttpClient newClient() {
+        final ExecutorService executor = newExecutor();
+        return new DefaultRequestHttpClient(newBuilder(executor).build(), executor);
+    }
+
+    static final class SharedHolder {
+
+        static final RequestHttpClient INSTANCE = RequestHttpClient.coalescing(RequestHttpClient.resilient(
+                RequestHttpClient.hostLimited(newClient(), RequestHttpClient.DEFAULT_MAX_CONNECTIONS_PER_HOST),
+                ResiliencePolicy.DEFAULT));
+
+        private SharedHolder() throws IllegalAccessException {
+            throw new IllegalAccessException("You cannot instantiate a holder class");
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -24,8 +24,17 @@
 
 package be.yvanmazy.minecraftremapper.process;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.nio.file.Path;
 
-public record DownloadResult(Path path, boolean skipped) {
+/**
+ * @param sha1 the SHA-1 of the file when known
+ */
+public record DownloadResult(Path path, boolean skipped, @Nullable String sha1) {
+
+    public DownloadResult(final Path path, final boolean skipped) {
+        this(path, skipped, null);
+    }
 
 }
\ No newline at end of file
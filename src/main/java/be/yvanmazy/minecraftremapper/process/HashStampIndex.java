@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process;
+
+import be.yvanmazy.minecraftremapper.util.FileStamp;
+import be.yvanmazy.minecraftremapper.util.HashUtil;
+import be.yvanmazy.minecraftremapper.util.PropertiesFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Remembers the verified SHA-1 of files together with a {@link FileStamp stamp} of their size, modification time and
+ * file key. As long as the stamp of a file is unchanged its SHA-1 is trusted, so checking a downloaded file is a single
+ * stat call instead of hashing it again.
+ */
+final class HashStampIndex {
+
+    private static final String FILE_NAME = "hashes.properties";
+
+    private final Path path;
+    private final Properties entries;
+    // Files hashed by this run, trusted even with --verify as long as their stamp is unchanged
+    private final Set<String> verified = new HashSet<>();
+
+    private HashStampIndex(final Path path) {
+        this.path = path;
+        this.entries = PropertiesFile.load(path);
+    }
+
+    static @NotNull HashStampIndex load(final @NotNull Path directory) {
+        return new HashStampIndex(directory.resolve(FILE_NAME));
+    }
+
+    /**
+     * @return the SHA-1 recorded for the file, or {@code null} if it is unknown or the file changed since
+     */
+    synchronized @Nullable String get(final @NotNull Path file) {
+        final String entry = this.entries.getProperty(key(file));
+        if (entry == null) {
+            return null;
+        }
+        final int separator = entry.indexOf(';');
+        final String stamp = FileStamp.of(file);
+        if (separator == -1 || stamp == null || !entry.substring(separator + 1).equals(stamp)) {
+            return null;
+        }
+        return entry.substring(0, separator);
+    }
+
+    /**
+     * Hashes the file unless its recorded stamp is unchanged, and records the result.
+     *
+     * @param verify hash the file even if its stamp is unchanged
+     */
+    @NotNull String hash(final @NotNull Path file, final boolean verify) throws IOException {
+        final String known = this.known(file, verify);
+        if (known != null) {
+            return known;
+        }
+        final String sha1 = HashUtil.hash(file);
+        this.put(file, sha1);
+        return sha1;
+    }
+
+    /**
+     * Hashes concurrently the files whose recorded stamp changed, and records the results.
+     *
+     * @param verify hash the files even if their stamp is unchanged
+     * @return the SHA-1 of every file, in the iteration order of the given collection
+     */
+    @NotNull Map<Path, String> hashAll(final @NotNull Collection<Path> files, final boolean verify, final @NotNull Executor executor)
+            throws IOException {
+        final Map<Path, String> hashes = new LinkedHashMap<>();
+        final List<Path> unknown = new ArrayList<>(files.size());
+        for (final Path file : files) {
+            final String known = this.known(file, verify);
+            hashes.put(file, known);
+            if (known == null) {
+                unknown.add(file);
+            }
+        }
+        for (final Map.Entry<Path, String> entry : HashUtil.hashAll(unknown, executor).entrySet()) {
+            this.put(entry.getKey(), entry.getValue());
+            hashes.put(entry.getKey(), entry.getValue());
+        }
+        return hashes;
+    }
+
+    /**
+     * Records the SHA-1 of a file that was just verified, e.g. while downloading it.
+     */
+    synchronized void put(final @NotNull Path file, final @NotNull String sha1) throws IOException {
+        final String stamp = FileStamp.of(file);
+        if (stamp == null) {
+            throw new IOException("Cannot read attributes of '" + file + "'");
+        }
+        final String entry = sha1 + ';' + stamp;
+        this.verified.add(key(file));
+        if (entry.equals(this.entries.put(key(file), entry))) {
+            return;
+        }
+        PropertiesFile.save(this.entries, this.path);
+    }
+
+    private synchronized @Nullable String known(final Path file, final boolean verify) {
+        return !verify || this.verified.contains(key(file)) ? this.get(file) : null;
+    }
+
+    private static String key(final Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+}
\ No newline at end of file
@@ -25,15 +25,22 @@
 package be.yvanmazy.minecraftremapper.process;
 
 import be.yvanmazy.minecraftremapper.DirectionType;
+import be.yvanmazy.minecraftremapper.http.ResumableDownloader;
 import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
 import be.yvanmazy.minecraftremapper.process.exception.ProcessingException;
+import be.yvanmazy.minecraftremapper.process.remap.Remapping;
+import be.yvanmazy.minecraftremapper.process.stage.Stage;
+import be.yvanmazy.minecraftremapper.process.stage.StageScheduler;
+import be.yvanmazy.minecraftremapper.process.stage.StageType;
 import be.yvanmazy.minecraftremapper.setting.PreparationSettings;
+import be.yvanmazy.minecraftremapper.store.ArtifactStore;
 import be.yvanmazy.minecraftremapper.util.FileUtil;
-import be.yvanmazy.minecraftremapper.util.HashUtil;
-import com.google.gson.JsonObject;
-import net.md_5.specialsource.Jar;
-import net.md_5.specialsource.JarMapping;
-import net.md_5.specialsource.JarRemapper;
+import be.yvanmazy.minecraftremapper.util.ToolUtil;
+import be.yvanmazy.minecraftremapper.util.Trash;
+import be.yvanmazy.minecraftremapper.version.VersionDownload;
+import be.yvanmazy.minecraftremapper.version.VersionMetadataParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.java.decompiler.api.Decompiler;
 import org.jetbrains.java.decompiler.main.decompiler.DirectoryResultSaver;
@@ -42,49 +49,91 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class RemapperProcessor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemapperProcessor.class);
+    private static final String DECOMPILER_VERSION = "Vineflower-" + ToolUtil.getVersion("org.vineflower:vineflower");
+
+    private static final String UNPACK_STAGE = "unpack";
+    private static final String REMAP_STAGE = "remap";
+    private static final String DECOMPILE_STAGE = "decompile";
 
     private final PreparationSettings config;
     private final Path root;
-
-    private JsonObject downloadJson;
+    private final ResumableDownloader downloader;
+    private final StageScheduler scheduler;
+    private final ArtifactStore cache;
+    private final StageManifest stages;
+    private final HashStampIndex hashes;
 
     public RemapperProcessor(final @NotNull PreparationSettings config) {
+        this(config, StageScheduler.common());
+    }
+
+    public RemapperProcessor(final @NotNull PreparationSettings config, final @NotNull StageScheduler scheduler) {
         this.config = Objects.requireNonNull(config, "config must not be null");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler must not be null");
         this.root = Path.of(config.outputDirectory(), this.config.version().id() + config.target().name().toLowerCase());
+        this.downloader = new ResumableDownloader(config.httpClient(), config.downloadConnections());
+        this.cache = config.cacheDirectory() != null ? new ArtifactStore(Path.of(config.cacheDirectory())) : null;
+        this.stages = StageManifest.load(this.root);
+        this.hashes = HashStampIndex.load(this.root);
     }
 
     public void process() throws ProcessingException {
-        this.createOutputDirectory();
-        this.downloadJson = this.downloadVersionJson();
+        this.processAsync().await();
+    }
 
-        final DownloadResult jarResult = this.downloadJar();
-        // Unpack server version jar
-        if (this.config.target() == DirectionType.SERVER) {
-            if (jarResult.skipped()) {
-                LOGGER.info("SKIP --> Unpack server is already done.");
-            } else {
-                this.unpackServerJar(jarResult.path());
-            }
+    /**
+     * Schedules every stage of the pipeline without blocking. The mapping branch only depends on the version
+     * metadata, so it is downloaded and parsed while the jar is downloaded and unpacked.
+     *
+     * @return the last stage of the pipeline, its output is the most processed jar
+     */
+    public @NotNull Stage<Path> processAsync() {
+        final Stage<Map<String, VersionDownload>> metadata = this.scheduler.submit(this.stageName("metadata"), StageType.IO, () -> {
+            this.createOutputDirectory();
+            final Map<String, VersionDownload> downloads = this.downloadVersionJson();
+            this.hashExistingFiles(downloads);
+            return downloads;
+        });
+
+        final Stage<DownloadResult> jar = this.scheduler.then(this.stageName("jar"), StageType.IO, metadata, this::downloadJar);
+        final Stage<DownloadResult> unpackedJar = this.scheduler.then(this.stageName("unpack"), StageType.IO, jar, this::unpackJar);
+        final Stage<DownloadResult> mappingFile = this.scheduler.then(this.stageName("mapping"), StageType.IO, metadata, this::downloadMapping);
+        if (!this.config.remap()) {
+            return this.scheduler.combine(this.stageName("done"), StageType.IO, unpackedJar, mappingFile, (result, mapping) -> result.path());
         }
-        final Path mappingPath = this.downloadMapping();
-        if (this.config.remap()) {
-            final Path remapPath = this.remapJar(jarResult, mappingPath, this.getRemappedJarPath());
-            if (this.config.decompile()) {
-                LOGGER.info("Decompiling...");
-                final Path path = remapPath.resolveSibling("decompiled");
-                try {
-                    FileUtil.recursiveDelete(path);
-                } catch (final IOException e) {
-                    LOGGER.error("Failed to delete directory with decompiled files, continue to decompile...", e);
-                }
-                Decompiler.builder().inputs(remapPath.toFile()).output(new DirectoryResultSaver(path.toFile())).build().decompile();
-            }
+
+        final Stage<LoadedMapping> mapping = this.scheduler.combine(this.stageName("mapping-load"),
+                StageType.CPU,
+                metadata,
+                mappingFile,
+                (downloads, result) -> {
+                    final VersionDownload jarDownload = downloads.get(this.config.getTargetKey());
+                    final String fingerprint = this.remapFingerprint(jarDownload != null ? jarDownload.sha1() : null, result.sha1());
+                    // Skip parsing when the remapped jar is up to date or cached, remapJar will load it lazily if needed
+                    final boolean load = !this.stages.isUpToDate(REMAP_STAGE, fingerprint, this.getRemappedJarPath()) &&
+                            (this.cache == null || fingerprint == null || this.cache.findDerived(fingerprint) == null);
+                    return new LoadedMapping(result.path(), fingerprint, load ? this.loadMapping(result.path()) : null);
+                });
+        final Stage<Path> remapped = this.scheduler.combine(this.stageName("remap"),
+                StageType.CPU,
+                unpackedJar,
+                mapping,
+                (result, loaded) -> this.remapJar(result, loaded, this.getRemappedJarPath()));
+        if (!this.config.decompile()) {
+            return remapped;
         }
+        return this.scheduler.then(this.stageName("decompile"), StageType.CPU, remapped, path -> {
+            this.decompile(path);
+            return path;
+        });
     }
 
     public @NotNull Path getVersionJarPath() {
@@ -111,41 +160,100 @@ public class RemapperProcessor {
                 throw new ProcessingException("Failed to create output directory", e);
             }
         }
+        // Left by a run that stopped before deleting its previous decompiled files
+        Trash.empty(this.root);
     }
 
-    private JsonObject downloadVersionJson() throws ProcessingException {
+    private Map<String, VersionDownload> downloadVersionJson() throws ProcessingException {
         final Path path = this.getVersionMetaPath();
-        String json;
+        final String expectedSha1 = this.config.version().sha1();
         if (Files.exists(path)) {
             try {
-                json = Files.readString(path);
-                final JsonObject downloads = this.parseDownloads(json);
-                if (downloads != null) {
-                    return downloads;
+                // Without a known hash (v1 manifest), the cached file is trusted as long as it parses
+                if (expectedSha1 == null || expectedSha1.equals(this.hashes.hash(path, this.config.verify()))) {
+                    final Map<String, VersionDownload> downloads = this.parseDownloads(path);
+                    if (!downloads.isEmpty()) {
+                        return downloads;
+                    }
+                } else {
+                    LOGGER.info("Cached version metadata is outdated, downloading it again.");
                 }
             } catch (final Exception ignored) {
             }
         }
         final String url = this.config.version().url();
+        final String sha1;
         try {
-            json = this.config.httpClient().getString(url);
+            // The body is streamed to disk, then parsed back in a single streaming pass
+            sha1 = this.config.httpClient().download(url, path);
         } catch (final RequestHttpException e) {
             throw new ProcessingException("Failed to download version metadata", e);
         }
+        if (expectedSha1 != null && !expectedSha1.equals(sha1)) {
+            throw new ProcessingException("Checksum failed for version metadata: expected " + expectedSha1 + " but got " + sha1);
+        }
+        this.recordHash(path, sha1);
+        try {
+            return this.parseDownloads(path);
+        } catch (final IOException | JsonParseException | IllegalStateException e) {
+            throw new ProcessingException("Failed to parse version metadata", e);
+        }
+    }
+
+    /**
+     * Hashes the jar and the mapping left by a previous run together, the download stages then find their hash recorded.
+     */
+    private void hashExistingFiles(final Map<String, VersionDownload> downloads) {
+        final List<Path> files = new ArrayList<>(2);
+        // The server jar is replaced by its unpacked content, it is only hashed when downloaded again
+        if (this.config.target() != DirectionType.SERVER && downloads.containsKey(this.config.getTargetKey())) {
+            files.add(this.getVersionJarPath());
+        }
+        if (downloads.containsKey(this.config.getTargetKey() + "_mappings")) {
+            files.add(this.getMappingPath());
+        }
+        files.removeIf(Files::notExists);
+        if (files.size() < 2) {
+            return;
+        }
         try {
-            Files.writeString(path, json);
+            this.hashes.hashAll(files, this.config.verify(), this.scheduler.getExecutor(StageType.CPU));
         } catch (final IOException e) {
-            LOGGER.error("Failed to save version metadata", e);
+            // Hashed again by the download stages, which report the error
+            LOGGER.debug("Failed to hash existing files", e);
         }
-        return this.parseDownloads(json);
     }
 
-    private DownloadResult downloadJar() throws ProcessingException {
-        return this.download("Version jar", this.config.getTargetKey(), this.getVersionJarPath());
+    private DownloadResult downloadJar(final Map<String, VersionDownload> downloads) throws ProcessingException {
+        if (this.config.target() == DirectionType.SERVER) {
+            // The server jar is replaced by its unpacked content, its downloaded hash no longer matches it
+            final VersionDownload base = downloads.get(this.config.getTargetKey());
+            final String sha1 = base != null ? base.sha1() : null;
+            if (this.stages.isUpToDate(UNPACK_STAGE, this.unpackFingerprint(sha1), this.getVersionJarPath())) {
+                LOGGER.info("SKIP --> Version jar is already downloaded and unpacked.");
+                return new DownloadResult(this.getVersionJarPath(), true, sha1);
+            }
+        }
+        return this.download(downloads, "Version jar", this.config.getTargetKey(), this.getVersionJarPath());
     }
 
-    private Path downloadMapping() throws ProcessingException {
-        return this.download("Version mapping", this.config.getTargetKey() + "_mappings", this.getMappingPath()).path();
+    private DownloadResult downloadMapping(final Map<String, VersionDownload> downloads) throws ProcessingException {
+        return this.download(downloads, "Version mapping", this.config.getTargetKey() + "_mappings", this.getMappingPath());
+    }
+
+    private DownloadResult unpackJar(final DownloadResult jarResult) throws ProcessingException {
+        // Unpack server version jar
+        if (this.config.target() == DirectionType.SERVER) {
+            final String fingerprint = this.unpackFingerprint(jarResult.sha1());
+            if (jarResult.skipped() && this.stages.isUpToDate(UNPACK_STAGE, fingerprint, jarResult.path())) {
+                LOGGER.info("SKIP --> Unpack server is already done.");
+            } else {
+                this.invalidateStage(UNPACK_STAGE);
+                this.unpackServerJar(jarResult.path());
+                this.recordStage(UNPACK_STAGE, fingerprint, jarResult.path());
+            }
+        }
+        return jarResult;
     }
 
     private void unpackServerJar(final Path path) throws ProcessingException {
@@ -163,101 +271,216 @@ public class RemapperProcessor {
         }
     }
 
-    private Path remapJar(final DownloadResult jarResult, final Path mappingPath, final Path outPath) throws ProcessingException {
-        if (jarResult.skipped() && FileUtil.isValidJar(outPath)) {
-            LOGGER.info("SKIP --> Remapping is already done.");
-            return outPath;
-        }
+    private Remapping loadMapping(final Path mappingPath) throws ProcessingException {
         LOGGER.info("Load mappings...");
-        final JarMapping jarMapping = new JarMapping();
         try {
-            jarMapping.loadMappings(mappingPath.toFile());
+            return this.config.remapEngine().load(mappingPath);
         } catch (final IOException e) {
             throw new ProcessingException("Failed to load mapping", e);
         }
-        final JarRemapper jarRemapper = new JarRemapper(jarMapping);
-        LOGGER.info("Remapping...");
+    }
+
+    private Path remapJar(final DownloadResult jarResult, final LoadedMapping mapping, final Path outPath) throws ProcessingException {
+        final String fingerprint = mapping.fingerprint();
+        if (this.stages.isUpToDate(REMAP_STAGE, fingerprint, outPath)) {
+            LOGGER.info("SKIP --> Remapping is already done.");
+            return outPath;
+        }
+        this.invalidateStage(REMAP_STAGE);
+        // The fingerprint identifies the remapped jar by its inputs, it is also its key in the cache
+        final String cacheKey = this.cache != null ? fingerprint : null;
+        if (cacheKey != null) {
+            final Path cached = this.cache.findDerived(cacheKey);
+            if (cached != null) {
+                try {
+                    FileUtil.linkOrCopy(cached, outPath);
+                    this.recordStage(REMAP_STAGE, fingerprint, outPath);
+                    LOGGER.info("SKIP --> Remapped jar is taken from the cache.");
+                    return outPath;
+                } catch (final IOException e) {
+                    LOGGER.warn("Failed to use cached remapped jar, remapping it again", e);
+                }
+            }
+        }
+        final Remapping remapping = mapping.remapping() != null ? mapping.remapping() : this.loadMapping(mapping.path());
+        LOGGER.info("Remapping with {}...", this.config.remapEngine().getVersion());
+        // Written next to the output then moved, so a jar shared with the cache through a link is never rewritten
+        final Path tempPath = outPath.resolveSibling(outPath.getFileName() + ".tmp");
         try {
-            jarRemapper.remapJar(Jar.init(jarResult.path().toFile()), outPath.toFile());
+            remapping.remap(jarResult.path(), tempPath);
+            Files.move(tempPath, outPath, StandardCopyOption.REPLACE_EXISTING);
         } catch (final IOException e) {
             throw new ProcessingException("Failed to remap jar", e);
         }
+        this.recordStage(REMAP_STAGE, fingerprint, outPath);
+        if (cacheKey != null) {
+            try {
+                this.cache.putDerived(cacheKey, outPath);
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to add remapped jar to the cache", e);
+            }
+        }
         return outPath;
     }
 
-    private DownloadResult download(final String display, final String jsonKey, final Path outPath) throws ProcessingException {
-        final JsonObject base = this.downloadJson.getAsJsonObject(jsonKey);
-        final String sha1 = base.get("sha1").getAsString();
+    private void decompile(final Path remapPath) throws ProcessingException {
+        final Path path = remapPath.resolveSibling("decompiled");
+        final String remapFingerprint = this.stages.getFingerprint(REMAP_STAGE);
+        final String fingerprint = remapFingerprint != null ? this.fingerprint(DECOMPILE_STAGE, remapFingerprint, DECOMPILER_VERSION) : null;
+        if (this.stages.isUpToDate(DECOMPILE_STAGE, fingerprint, path)) {
+            LOGGER.info("SKIP --> Decompiling is already done.");
+            return;
+        }
+        this.invalidateStage(DECOMPILE_STAGE);
+        LOGGER.info("Decompiling...");
+        try {
+            // The previous files are deleted in the background, the decompiler writes to an empty directory
+            Trash.discard(path, this.root);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to delete directory with decompiled files, continue to decompile...", e);
+        }
+        Decompiler.builder().inputs(remapPath.toFile()).output(new DirectoryResultSaver(path.toFile())).build().decompile();
+        this.recordStage(DECOMPILE_STAGE, fingerprint, path);
+    }
+
+    /**
+     * Unpacking is deterministic, the downloaded server jar identifies its result.
+     */
+    private String unpackFingerprint(final String serverSha1) throws ProcessingException {
+        return serverSha1 != null ? this.fingerprint(UNPACK_STAGE, serverSha1) : null;
+    }
+
+    /**
+     * @return the fingerprint of a remapped jar: the hashes of the downloaded jar and of the mapping, and the version
+     * of the remap engine. {@code null} when a hash is unknown.
+     */
+    private String remapFingerprint(final String jarSha1, final String mappingSha1) throws ProcessingException {
+        if (jarSha1 == null || mappingSha1 == null) {
+            return null;
+        }
+        return this.fingerprint(REMAP_STAGE, this.config.getTargetKey(), jarSha1, mappingSha1, this.config.remapEngine().getVersion());
+    }
+
+    private String fingerprint(final String... inputs) throws ProcessingException {
+        try {
+            return StageManifest.fingerprint(inputs);
+        } catch (final IOException e) {
+            throw new ProcessingException("Failed to compute stage fingerprint", e);
+        }
+    }
+
+    private void invalidateStage(final String stage) throws ProcessingException {
+        try {
+            this.stages.invalidate(stage);
+        } catch (final IOException e) {
+            throw new ProcessingException("Failed to update stage manifest", e);
+        }
+    }
+
+    private void recordStage(final String stage, final String fingerprint, final Path output) throws ProcessingException {
+        try {
+            this.stages.record(stage, fingerprint, output);
+        } catch (final IOException e) {
+            throw new ProcessingException("Failed to update stage manifest", e);
+        }
+    }
+
+    private DownloadResult download(final Map<String, VersionDownload> downloads,
+                                    final String display,
+                                    final String jsonKey,
+                                    final Path outPath) throws ProcessingException {
+        final VersionDownload base = downloads.get(jsonKey);
+        if (base == null) {
+            throw new ProcessingException("Version '" + this.config.version().id() + "' has no '" + jsonKey + "' download");
+        }
+        final String sha1 = base.sha1();
 
         try {
             if (this.isAlreadyDownloaded(outPath, sha1)) {
                 LOGGER.info("SKIP --> {} is already downloaded.", display);
-                return new DownloadResult(outPath, true);
+                return new DownloadResult(outPath, true, sha1);
             }
         } catch (final IOException e) {
             throw new ProcessingException("Failed to check sha1 file", e);
         }
 
+        final Path cached = this.cache != null && sha1 != null ? this.cache.findObject(sha1) : null;
+        if (cached != null) {
+            try {
+                FileUtil.linkOrCopy(cached, outPath);
+                this.recordHash(outPath, sha1);
+                LOGGER.info("SKIP --> {} is taken from the cache.", display);
+                return new DownloadResult(outPath, false, sha1);
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to use cached {}, downloading it", display, e);
+            }
+        }
+
         LOGGER.info("Downloading {}...", display);
         final long start = System.currentTimeMillis();
 
-        final String fileUrl = base.get("url").getAsString();
-        final byte[] fileContent;
+        final String fileUrl = base.url();
+        final String downloadedSha1;
         try {
-            fileContent = this.config.httpClient().getBytes(fileUrl);
+            downloadedSha1 = this.downloader.download(fileUrl, outPath, sha1);
         } catch (final RequestHttpException e) {
-            throw new ProcessingException("Failed to download file data", e);
+            throw new ProcessingException("Failed to download '" + display + "'", e);
         }
-        try {
-            Files.write(outPath, fileContent);
-        } catch (final IOException e) {
-            throw new ProcessingException("Failed to write file", e);
-        }
-        if (sha1 != null) {
+        // Verified while downloading, the next run only compares the stamp of the file
+        this.recordHash(outPath, downloadedSha1);
+        if (this.cache != null) {
             try {
-                if (!sha1.equals(HashUtil.hash(outPath))) {
-                    throw new ProcessingException("Checksum failed for '" + display + "'");
-                }
-            } catch (final IOException e) {
-                throw new ProcessingException("Failed to checksum for '" + display + "'", e);
-            }
-            try {
-                Files.writeString(this.toHashPath(outPath), sha1);
+                this.cache.put(fileUrl, outPath, downloadedSha1);
             } catch (final IOException e) {
-                throw new ProcessingException("Failed to write sha1 file", e);
+                LOGGER.warn("Failed to add {} to the cache", display, e);
             }
         }
 
         LOGGER.info("{} is downloaded in {}ms", display, System.currentTimeMillis() - start);
-        return new DownloadResult(outPath, false);
+        return new DownloadResult(outPath, false, downloadedSha1);
     }
 
-    private JsonObject parseDownloads(final String json) {
-        return this.config.gson().fromJson(json, JsonObject.class).getAsJsonObject("downloads");
+    private void recordHash(final Path path, final String sha1) throws ProcessingException {
+        try {
+            this.hashes.put(path, sha1);
+            // Replaced by the hash index
+            Files.deleteIfExists(this.toHashPath(path));
+        } catch (final IOException e) {
+            throw new ProcessingException("Failed to update hash index", e);
+        }
+    }
+
+    private Map<String, VersionDownload> parseDownloads(final Path path) throws IOException {
+        try (final JsonReader reader = new JsonReader(Files.newBufferedReader(path))) {
+            return VersionMetadataParser.readDownloads(reader);
+        }
     }
 
     private boolean isAlreadyDownloaded(final Path path, final String sha1) throws IOException {
         if (Files.notExists(path)) {
             return false;
         }
-        if (path.getFileName().toString().endsWith(".jar") && !FileUtil.isValidJar(path)) {
-            return false;
-        }
         if (sha1 != null) {
-            if (!sha1.equals(HashUtil.hash(path))) {
-                return false;
-            }
-            final Path hashFile = this.toHashPath(path);
-            if (Files.exists(hashFile)) {
-                return Files.readString(hashFile).equals(sha1);
-            }
-            return false;
+            // A file with a verified hash is complete, only a changed stamp or --verify hashes it again
+            return sha1.equals(this.hashes.hash(path, this.config.verify()));
         }
-        return true;
+        // Without a known hash, only the zip structure is checked, entirely with --verify
+        return !path.getFileName().toString().endsWith(".jar") || FileUtil.isValidJar(path, this.config.verify());
     }
 
+    /**
+     * @return the legacy sidecar holding the SHA-1 of a file, replaced by {@link HashStampIndex}
+     */
     private Path toHashPath(final @NotNull Path path) {
         return path.toAbsolutePath().resolveSibling(path.getFileName().toString() + ".sha1");
     }
 
+    private String stageName(final String stage) {
+        return this.config.version().id() + '/' + this.config.getTargetKey() + '/' + stage;
+    }
+
+    private record LoadedMapping(Path path, String fingerprint, Remapping remapping) {
+
+    }
+
 }
\ No newline at end of file
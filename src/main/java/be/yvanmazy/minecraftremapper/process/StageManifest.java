@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process;
+
+import be.yvanmazy.minecraftremapper.util.HashUtil;
+import be.yvanmazy.minecraftremapper.util.PropertiesFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+/**
+ * Records, for every stage of a processor, the fingerprint of the inputs it last completed with and the size and
+ * modification time of what it produced. A stage is up to date when both still match, which only costs a stat call.
+ * A stage is invalidated before it starts, so an interrupted stage never looks complete.
+ */
+final class StageManifest {
+
+    private static final String FILE_NAME = "stages.properties";
+
+    private final Path path;
+    private final Properties entries;
+
+    private StageManifest(final Path path) {
+        this.path = path;
+        this.entries = PropertiesFile.load(path);
+    }
+
+    static @NotNull StageManifest load(final @NotNull Path directory) {
+        return new StageManifest(directory.resolve(FILE_NAME));
+    }
+
+    /**
+     * @return the fingerprint of the given inputs (hashes, tool versions, options)
+     */
+    static @NotNull String fingerprint(final @NotNull String... inputs) throws IOException {
+        return HashUtil.hashParts(inputs);
+    }
+
+    synchronized boolean isUpToDate(final @NotNull String stage, final @Nullable String fingerprint, final @NotNull Path output) {
+        if (fingerprint == null) {
+            return false;
+        }
+        final String entry = this.entries.getProperty(stage);
+        return entry != null && entry.equals(describe(fingerprint, output));
+    }
+
+    /**
+     * @return the fingerprint the stage last completed with, or {@code null}
+     */
+    synchronized @Nullable String getFingerprint(final @NotNull String stage) {
+        final String entry = this.entries.getProperty(stage);
+        if (entry == null) {
+            return null;
+        }
+        final int separator = entry.indexOf(';');
+        return separator != -1 ? entry.substring(0, separator) : entry;
+    }
+
+    synchronized void invalidate(final @NotNull String stage) throws IOException {
+        if (this.entries.remove(stage) != null) {
+            this.save();
+        }
+    }
+
+    synchronized void record(final @NotNull String stage, final @Nullable String fingerprint, final @NotNull Path output)
+            throws IOException {
+        if (fingerprint == null) {
+            return;
+        }
+        final String entry = describe(fingerprint, output);
+        if (entry != null) {
+            this.entries.setProperty(stage, entry);
+            this.save();
+        }
+    }
+
+    private void save() throws IOException {
+        PropertiesFile.save(this.entries, this.path);
+    }
+
+    private static String describe(final String fingerprint, final Path output) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(output, BasicFileAttributes.class);
+        } catch (final IOException e) {
+            return null;
+        }
+        if (attributes.isDirectory()) {
+            // The content of a directory is only produced by its stage, its presence is enough
+            return fingerprint + ";dir";
+        }
+        return fingerprint + ';' + attributes.size() + ';' + attributes.lastModifiedTime().toMillis();
+    }
+
+}
\ No newline at end of file
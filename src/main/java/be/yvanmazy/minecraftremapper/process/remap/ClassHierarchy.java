@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parents and declared members of the classes of a jar, used to find which class declares a member referenced
+ * through one of its subclasses.
+ */
+final class ClassHierarchy {
+
+    private final Map<String, Node> nodes;
+
+    ClassHierarchy(final Map<String, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return the class declaring the member, searched from the owner through its superclasses then its interfaces,
+     * or the owner itself if no class of the jar declares it
+     */
+    String findDeclaringClass(final String owner, final String member, final boolean method) {
+        final String found = this.find(owner, member, method, new HashSet<>());
+        return found != null ? found : owner;
+    }
+
+    private String find(final String owner, final String member, final boolean method, final Set<String> visited) {
+        final Node node = this.nodes.get(owner);
+        if (node == null || !visited.add(owner)) {
+            return null;
+        }
+        if ((method ? node.methods : node.fields).contains(member)) {
+            return owner;
+        }
+        for (final String parent : node.parents) {
+            final String found = this.find(parent, member, method, visited);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    record Node(String[] parents, Set<String> fields, Set<String> methods) {
+
+    }
+
+    /**
+     * Collects a {@link Node} from a class read without its code.
+     */
+    static final class Collector extends ClassVisitor {
+
+        private final Set<String> fields = new HashSet<>();
+        private final Set<String> methods = new HashSet<>();
+        private String name;
+        private String[] parents;
+
+        Collector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(final int version,
+                          final int access,
+                          final String name,
+                          final String signature,
+                          final String superName,
+                          final String[] interfaces) {
+            this.name = name;
+            final int offset = superName != null ? 1 : 0;
+            this.parents = new String[interfaces.length + offset];
+            if (superName != null) {
+                this.parents[0] = superName;
+            }
+            System.arraycopy(interfaces, 0, this.parents, offset, interfaces.length);
+        }
+
+        @Override
+        public FieldVisitor visitField(final int access, final String name, final String descriptor, final String signature, final Object value) {
+            this.fields.add(name);
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access,
+                                         final String name,
+                                         final String descriptor,
+                                         final String signature,
+                                         final String[] exceptions) {
+            this.methods.add(name + descriptor);
+            return null;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        Node toNode() {
+            return new Node(this.parents, this.fields, this.methods);
+        }
+
+    }
+
+}
\ No newline at end of file
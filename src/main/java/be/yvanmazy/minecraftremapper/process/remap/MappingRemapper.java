@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.MethodRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the names of a jar with a {@link ProguardMapping}. A member referenced through a subclass is looked up in the
+ * class declaring it, resolutions are cached since the same references appear in many classes. Thread safe.
+ */
+final class MappingRemapper extends Remapper {
+
+    private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+
+    private final ProguardMapping mapping;
+    private final ClassHierarchy hierarchy;
+    private final Map<String, String> resolvedFields = new ConcurrentHashMap<>();
+    private final Map<String, String> resolvedMethods = new ConcurrentHashMap<>();
+
+    MappingRemapper(final ProguardMapping mapping, final ClassHierarchy hierarchy) {
+        this.mapping = mapping;
+        this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public String map(final String internalName) {
+        final String name = this.mapping.getClassName(internalName);
+        return name != null ? name : internalName;
+    }
+
+    @Override
+    public String mapFieldName(final String owner, final String name, final String descriptor) {
+        final String key = owner + '.' + name;
+        String resolved = this.resolvedFields.get(key);
+        if (resolved == null) {
+            final String mapped = this.mapping.getFieldName(this.hierarchy.findDeclaringClass(owner, name, false), name);
+            resolved = mapped != null ? mapped : name;
+            this.resolvedFields.put(key, resolved);
+        }
+        return resolved;
+    }
+
+    @Override
+    public String mapRecordComponentName(final String owner, final String name, final String descriptor) {
+        return this.mapFieldName(owner, name, descriptor);
+    }
+
+    @Override
+    public String mapMethodName(final String owner, final String name, final String descriptor) {
+        if (name.charAt(0) == '<' || owner.charAt(0) == '[') {
+            // Constructors, static initializers and methods of arrays keep their names
+            return name;
+        }
+        final String key = owner + '.' + name + descriptor;
+        String resolved = this.resolvedMethods.get(key);
+        if (resolved == null) {
+            final String declaring = this.hierarchy.findDeclaringClass(owner, name + descriptor, true);
+            final String mapped = this.mapping.getMethodName(declaring, name, descriptor);
+            resolved = mapped != null ? mapped : name;
+            this.resolvedMethods.put(key, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * @return a class visitor remapping with this remapper, including the names of the methods implemented by lambdas
+     */
+    ClassRemapper newClassRemapper(final ClassVisitor visitor) {
+        return new ClassRemapper(Opcodes.ASM9, visitor, this) {
+            @Override
+            protected MethodVisitor createMethodRemapper(final MethodVisitor methodVisitor) {
+                return new LambdaMethodRemapper(methodVisitor, this.remapper);
+            }
+        };
+    }
+
+    /**
+     * The name of a lambda is the one of the method it implements, declared by the functional interface returned by
+     * the call site. ASM only gives the name and the descriptor of the call site to the remapper.
+     */
+    private static final class LambdaMethodRemapper extends MethodRemapper {
+
+        private LambdaMethodRemapper(final MethodVisitor methodVisitor, final Remapper remapper) {
+            super(Opcodes.ASM9, methodVisitor, remapper);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(final String name,
+                                           final String descriptor,
+                                           final Handle bootstrapMethodHandle,
+                                           final Object... bootstrapMethodArguments) {
+            String mapped = name;
+            if (LAMBDA_METAFACTORY.equals(bootstrapMethodHandle.getOwner()) && bootstrapMethodArguments.length > 0 &&
+                    bootstrapMethodArguments[0] instanceof final Type methodType) {
+                final Type functionalInterface = Type.getReturnType(descriptor);
+                if (functionalInterface.getSort() == Type.OBJECT) {
+                    mapped = this.remapper.mapMethodName(functionalInterface.getInternalName(), name, methodType.getDescriptor());
+                }
+            }
+            super.visitInvokeDynamicInsn(mapped, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Built-in remapper. The jar is read and its class hierarchy is built once, then the classes are remapped with ASM on a
+ * fork-join pool. Entries are written in the order of the input jar, so the output does not depend on the scheduling.
+ * Signatures of the input jar are dropped, they do not match the remapped classes.
+ */
+public final class ParallelJarRemapper implements Remapping {
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final int BATCH_SIZE = 64;
+
+    private final ProguardMapping mapping;
+    private final ForkJoinPool pool;
+
+    public ParallelJarRemapper(final @NotNull ProguardMapping mapping) {
+        this(mapping, ForkJoinPool.commonPool());
+    }
+
+    public ParallelJarRemapper(final @NotNull ProguardMapping mapping, final @NotNull ForkJoinPool pool) {
+        this.mapping = Objects.requireNonNull(mapping, "mapping must not be null");
+        this.pool = Objects.requireNonNull(pool, "pool must not be null");
+    }
+
+    @Override
+    public void remap(final @NotNull Path input, final @NotNull Path output) throws IOException {
+        try (final ZipFile zip = new ZipFile(input.toFile())) {
+            final List<? extends ZipEntry> entries = Collections.list(zip.entries())
+                    .stream()
+                    .filter(entry -> !entry.isDirectory() && !isSignature(entry.getName()))
+                    .toList();
+            final int size = entries.size();
+            final byte[][] contents = new byte[size][];
+            final ClassHierarchy.Collector[] collectors = new ClassHierarchy.Collector[size];
+
+            // Entries are inflated and their headers parsed in parallel
+            this.forEach(size, index -> {
+                final ZipEntry entry = entries.get(index);
+                try (final InputStream stream = zip.getInputStream(entry)) {
+                    contents[index] = stream.readAllBytes();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (entry.getName().endsWith(CLASS_EXTENSION)) {
+                    final ClassHierarchy.Collector collector = new ClassHierarchy.Collector();
+                    new ClassReader(contents[index]).accept(collector, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    collectors[index] = collector;
+                }
+            });
+            final Map<String, ClassHierarchy.Node> nodes = new HashMap<>(size * 2);
+            for (final ClassHierarchy.Collector collector : collectors) {
+                if (collector != null) {
+                    nodes.put(collector.getName(), collector.toNode());
+                }
+            }
+
+            final MappingRemapper remapper = new MappingRemapper(this.mapping, new ClassHierarchy(nodes));
+            final String[] names = new String[size];
+            this.forEach(size, index -> {
+                final ClassHierarchy.Collector collector = collectors[index];
+                if (collector == null) {
+                    names[index] = entries.get(index).getName();
+                    return;
+                }
+                final ClassWriter writer = new ClassWriter(0);
+                new ClassReader(contents[index]).accept(remapper.newClassRemapper(writer), 0);
+                contents[index] = writer.toByteArray();
+                names[index] = remapper.map(collector.getName()) + CLASS_EXTENSION;
+            });
+
+            try (final ZipOutputStream stream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+                for (int i = 0; i < size; i++) {
+                    final ZipEntry entry = new ZipEntry(names[i]);
+                    entry.setTime(entries.get(i).getTime());
+                    stream.putNextEntry(entry);
+                    stream.write(contents[i]);
+                    stream.closeEntry();
+                }
+            }
+        }
+    }
+
+    private void forEach(final int size, final IntConsumer action) throws IOException {
+        try {
+            this.pool.invoke(new ForEachAction(0, size, action));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        } catch (final RuntimeException e) {
+            // ASM reports a malformed class with unchecked exceptions
+            throw new IOException("Failed to remap jar", e);
+        }
+    }
+
+    private static boolean isSignature(final String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', 9) != -1) {
+            return false;
+        }
+        final String upperCase = name.toUpperCase(Locale.ROOT);
+        return upperCase.endsWith(".SF") || upperCase.endsWith(".RSA") || upperCase.endsWith(".DSA") || upperCase.endsWith(".EC");
+    }
+
+    private static final class ForEachAction extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private ForEachAction(final int from, final int to, final IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= BATCH_SIZE) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.action.accept(i);
+                }
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ForEachAction(this.from, middle, this.action), new ForEachAction(middle, this.to, this.action));
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mappings in the ProGuard format published by Mojang, read from the named side to the obfuscated side and indexed
+ * the other way around: every lookup takes obfuscated internal names and descriptors, as found in the game jar.
+ */
+public final class ProguardMapping {
+
+    private static final Map<String, String> PRIMITIVES = Map.of("void", "V",
+            "boolean", "Z",
+            "byte", "B",
+            "char", "C",
+            "short", "S",
+            "int", "I",
+            "long", "J",
+            "float", "F",
+            "double", "D");
+
+    private final Map<String, String> classes;
+    private final Map<String, Map<String, String>> fields;
+    private final Map<String, Map<String, String>> methods;
+
+    private ProguardMapping(final Map<String, String> classes,
+                            final Map<String, Map<String, String>> fields,
+                            final Map<String, Map<String, String>> methods) {
+        this.classes = classes;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    public static @NotNull ProguardMapping load(final @NotNull Path path) throws IOException {
+        final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+        // Descriptors are written with named types, every class must be known before converting them
+        final Map<String, String> obfuscatedNames = new HashMap<>();
+        for (final String line : lines) {
+            if (isClassLine(line)) {
+                final int arrow = arrow(line);
+                obfuscatedNames.put(toInternalName(line.substring(0, arrow)), toInternalName(line.substring(arrow + 4, line.length() - 1)));
+            }
+        }
+
+        final Map<String, String> classes = new HashMap<>(obfuscatedNames.size() * 2);
+        final Map<String, Map<String, String>> fields = new HashMap<>(obfuscatedNames.size() * 2);
+        final Map<String, Map<String, String>> methods = new HashMap<>(obfuscatedNames.size() * 2);
+        Map<String, String> classFields = null;
+        Map<String, String> classMethods = null;
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            // Comments added by R8 to the members are indented like them, e.g. '    # {"id":"com.android.tools.r8.synthesized"}'
+            if (line.isBlank() || line.stripLeading().startsWith("#")) {
+                continue;
+            }
+            final int arrow = arrow(line);
+            if (arrow == -1) {
+                throw new IOException("Invalid mapping at line " + (i + 1) + ": " + line);
+            }
+            if (isClassLine(line)) {
+                final String owner = toInternalName(line.substring(arrow + 4, line.length() - 1));
+                classes.put(owner, toInternalName(line.substring(0, arrow)));
+                classFields = fields.computeIfAbsent(owner, key -> new HashMap<>());
+                classMethods = methods.computeIfAbsent(owner, key -> new HashMap<>());
+                continue;
+            }
+            if (classFields == null) {
+                throw new IOException("Member outside of a class at line " + (i + 1) + ": " + line);
+            }
+            final String obfuscated = line.substring(arrow + 4).trim();
+            final String member = stripLineNumbers(line.substring(0, arrow).trim());
+            final int space = member.indexOf(' ');
+            final int parenthesis = member.indexOf('(');
+            if (space == -1) {
+                throw new IOException("Invalid member at line " + (i + 1) + ": " + line);
+            }
+            final String name = member.substring(space + 1, parenthesis != -1 ? parenthesis : member.length());
+            if (name.indexOf('.') != -1) {
+                // Method of another class inlined into this one, it does not exist in the jar
+                continue;
+            }
+            if (parenthesis == -1) {
+                classFields.put(obfuscated, name);
+                continue;
+            }
+            final String returnType = toDescriptor(member.substring(0, space), obfuscatedNames);
+            final StringBuilder descriptor = new StringBuilder().append('(');
+            final String parameters = member.substring(parenthesis + 1, member.lastIndexOf(')'));
+            if (!parameters.isEmpty()) {
+                for (final String parameter : parameters.split(",")) {
+                    descriptor.append(toDescriptor(parameter, obfuscatedNames));
+                }
+            }
+            descriptor.append(')').append(returnType);
+            classMethods.put(obfuscated + descriptor, name);
+        }
+        return new ProguardMapping(classes, fields, methods);
+    }
+
+    /**
+     * @return the named internal name of the class, or {@code null} if it is not mapped
+     */
+    public @Nullable String getClassName(final @NotNull String owner) {
+        return this.classes.get(owner);
+    }
+
+    /**
+     * @return the named name of a field declared by the given class, or {@code null} if it is not mapped
+     */
+    public @Nullable String getFieldName(final @NotNull String owner, final @NotNull String name) {
+        final Map<String, String> members = this.fields.get(owner);
+        return members != null ? members.get(name) : null;
+    }
+
+    /**
+     * @return the named name of a method declared by the given class, or {@code null} if it is not mapped
+     */
+    public @Nullable String getMethodName(final @NotNull String owner, final @NotNull String name, final @NotNull String descriptor) {
+        final Map<String, String> members = this.methods.get(owner);
+        return members != null ? members.get(name + descriptor) : null;
+    }
+
+    public int getClassCount() {
+        return this.classes.size();
+    }
+
+    private static boolean isClassLine(final String line) {
+        return !line.isEmpty() && !Character.isWhitespace(line.charAt(0)) && line.charAt(0) != '#' && line.endsWith(":");
+    }
+
+    private static int arrow(final String line) {
+        return line.indexOf(" -> ");
+    }
+
+    /**
+     * Removes the line ranges around a member, e.g. {@code 12:14:void tick():80:82} gives {@code void tick()}.
+     */
+    private static String stripLineNumbers(final String member) {
+        int start = 0;
+        while (start < member.length() && (Character.isDigit(member.charAt(start)) || member.charAt(start) == ':')) {
+            start++;
+        }
+        int end = member.length();
+        final int parenthesis = member.lastIndexOf(')');
+        if (parenthesis != -1) {
+            end = parenthesis + 1;
+        }
+        return member.substring(start, end);
+    }
+
+    private static String toDescriptor(final String type, final Map<String, String> obfuscatedNames) {
+        int dimensions = 0;
+        String element = type.trim();
+        while (element.endsWith("[]")) {
+            dimensions++;
+            element = element.substring(0, element.length() - 2);
+        }
+        final StringBuilder builder = new StringBuilder(element.length() + dimensions + 2);
+        builder.append("[".repeat(dimensions));
+        final String primitive = PRIMITIVES.get(element);
+        if (primitive != null) {
+            builder.append(primitive);
+        } else {
+            final String internalName = toInternalName(element);
+            builder.append('L').append(obfuscatedNames.getOrDefault(internalName, internalName)).append(';');
+        }
+        return builder.toString();
+    }
+
+    private static String toInternalName(final String name) {
+        return name.trim().replace('.', '/');
+    }
+
+}
\ No newline at end of file
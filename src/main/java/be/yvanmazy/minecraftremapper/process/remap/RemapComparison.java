@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Result of remapping a jar with the built-in engine and with SpecialSource. Durations are the best of every round
+ * and do not include loading the mapping. Outputs are compared entry by entry, regardless of compression and order.
+ *
+ * @param different entries present in both outputs with a different content
+ * @param missing   entries only written by SpecialSource
+ * @param extra     entries only written by the built-in engine
+ */
+public record RemapComparison(long builtinMillis, long specialSourceMillis, int identical, List<String> different,
+                              List<String> missing, List<String> extra) {
+
+    public static @NotNull RemapComparison compare(final @NotNull Path jar,
+                                                   final @NotNull Path mappingFile,
+                                                   final @NotNull Path workDirectory,
+                                                   final int rounds) throws IOException {
+        if (rounds < 1) {
+            throw new IllegalArgumentException("rounds must be at least 1");
+        }
+        final Path builtinOutput = workDirectory.resolve("remapped-builtin.jar");
+        final Path specialSourceOutput = workDirectory.resolve("remapped-specialsource.jar");
+        try {
+            final long builtinMillis = time(RemapEngine.BUILTIN.load(mappingFile), jar, builtinOutput, rounds);
+            final long specialSourceMillis = time(RemapEngine.SPECIAL_SOURCE.load(mappingFile), jar, specialSourceOutput, rounds);
+
+            final Map<String, byte[]> builtin = read(builtinOutput);
+            final Map<String, byte[]> specialSource = read(specialSourceOutput);
+            int identical = 0;
+            final List<String> different = new ArrayList<>();
+            final List<String> missing = new ArrayList<>();
+            for (final Map.Entry<String, byte[]> entry : specialSource.entrySet()) {
+                final byte[] content = builtin.remove(entry.getKey());
+                if (content == null) {
+                    missing.add(entry.getKey());
+                } else if (Arrays.equals(content, entry.getValue())) {
+                    identical++;
+                } else {
+                    different.add(entry.getKey());
+                }
+            }
+            return new RemapComparison(builtinMillis,
+                    specialSourceMillis,
+                    identical,
+                    List.copyOf(different),
+                    List.copyOf(missing),
+                    List.copyOf(builtin.keySet()));
+        } finally {
+            Files.deleteIfExists(builtinOutput);
+            Files.deleteIfExists(specialSourceOutput);
+        }
+    }
+
+    public double speedup() {
+        return (double) this.specialSourceMillis / Math.max(1L, this.builtinMillis);
+    }
+
+    public boolean isIdentical() {
+        return this.different.isEmpty() && this.missing.isEmpty() && this.extra.isEmpty();
+    }
+
+    private static long time(final Remapping remapping, final Path jar, final Path output, final int rounds) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            final long start = System.nanoTime();
+            remapping.remap(jar, output);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000L);
+        }
+        return best;
+    }
+
+    private static Map<String, byte[]> read(final Path jar) throws IOException {
+        final Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                try (final InputStream stream = zip.getInputStream(entry)) {
+                    contents.put(entry.getName(), stream.readAllBytes());
+                }
+            }
+        }
+        return contents;
+    }
+
+}
\ No newline at end of file
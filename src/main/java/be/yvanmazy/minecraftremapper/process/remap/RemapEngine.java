@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import be.yvanmazy.minecraftremapper.util.ToolUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public enum RemapEngine {
+
+    /**
+     * {@link ParallelJarRemapper}, remaps the classes on every core.
+     */
+    BUILTIN("Builtin-" + ToolUtil.getProjectVersion() + "/ASM-" + ToolUtil.getVersion("org.ow2.asm:asm-commons")),
+    /**
+     * SpecialSource, remaps the classes one at a time on a single thread.
+     */
+    SPECIAL_SOURCE("SpecialSource-" + ToolUtil.getVersion("net.md-5:SpecialSource"));
+
+    /**
+     * The built-in engine stays opt-in until its output is shown to be identical to the one of SpecialSource on real
+     * versions, see {@link RemapComparison}.
+     */
+    public static final RemapEngine DEFAULT = SPECIAL_SOURCE;
+
+    private final String version;
+
+    RemapEngine(final String version) {
+        this.version = version;
+    }
+
+    public @NotNull Remapping load(final @NotNull Path mappingFile) throws IOException {
+        return switch (this) {
+            case BUILTIN -> new ParallelJarRemapper(ProguardMapping.load(mappingFile));
+            case SPECIAL_SOURCE -> SpecialSourceRemapping.load(mappingFile);
+        };
+    }
+
+    /**
+     * @return the engine and the version of its tools, part of the fingerprint of the jars it remaps
+     */
+    public @NotNull String getVersion() {
+        return this.version;
+    }
+
+}
\ No newline at end of file
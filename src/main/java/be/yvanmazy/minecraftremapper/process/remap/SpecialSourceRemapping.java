@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import net.md_5.specialsource.Jar;
+import net.md_5.specialsource.JarMapping;
+import net.md_5.specialsource.JarRemapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Remaps with SpecialSource, one class at a time.
+ */
+final class SpecialSourceRemapping implements Remapping {
+
+    private final JarMapping mapping;
+
+    private SpecialSourceRemapping(final JarMapping mapping) {
+        this.mapping = mapping;
+    }
+
+    static @NotNull SpecialSourceRemapping load(final @NotNull Path path) throws IOException {
+        final JarMapping mapping = new JarMapping();
+        mapping.loadMappings(path.toFile());
+        return new SpecialSourceRemapping(mapping);
+    }
+
+    @Override
+    public void remap(final @NotNull Path input, final @NotNull Path output) throws IOException {
+        try (final Jar jar = Jar.init(input.toFile())) {
+            new JarRemapper(this.mapping).remapJar(jar, output.toFile());
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.stage;
+
+import be.yvanmazy.minecraftremapper.process.exception.ProcessingException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Node of a pipeline: a named unit of work of a given {@link StageType}, started once all of its inputs completed.
+ *
+ * @param <T> type of the output of the stage
+ */
+public final class Stage<T> {
+
+    private final String name;
+    private final StageType type;
+    private final List<Stage<?>> inputs;
+    private final CompletableFuture<T> future;
+
+    Stage(final @NotNull String name,
+          final @NotNull StageType type,
+          final @NotNull List<Stage<?>> inputs,
+          final @NotNull CompletableFuture<T> future) {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        this.type = Objects.requireNonNull(type, "type must not be null");
+        this.inputs = List.copyOf(inputs);
+        this.future = Objects.requireNonNull(future, "future must not be null");
+    }
+
+    public T await() throws ProcessingException {
+        try {
+            return this.future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof final ProcessingException exception) {
+                throw exception;
+            }
+            throw new ProcessingException("Stage '" + this.name + "' failed", e.getCause());
+        } catch (final CancellationException e) {
+            throw new ProcessingException("Stage '" + this.name + "' was cancelled", e);
+        }
+    }
+
+    public boolean cancel() {
+        return this.future.cancel(false);
+    }
+
+    public @NotNull String getName() {
+        return this.name;
+    }
+
+    public @NotNull StageType getType() {
+        return this.type;
+    }
+
+    public @NotNull @UnmodifiableView List<Stage<?>> getInputs() {
+        return this.inputs;
+    }
+
+    public @NotNull CompletableFuture<T> toFuture() {
+        return this.future;
+    }
+
+    @Override
+    public String toString() {
+        return "Stage{name='" + this.name + "', type=" + this.type + '}';
+    }
+
+}
\ No newline at end of file
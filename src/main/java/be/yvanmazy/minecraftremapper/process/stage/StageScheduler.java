@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.stage;
+
+import be.yvanmazy.minecraftremapper.process.exception.ProcessingException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs pipeline stages once their inputs are available: {@link StageType#IO} stages on a bounded I/O pool and
+ * {@link StageType#CPU} stages on a pool sized after the available processors. Sharing one scheduler between several
+ * processors lets the downloads of a version run while another one is remapped or decompiled.
+ */
+public final class StageScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StageScheduler.class);
+
+    public static final int DEFAULT_IO_THREADS = 8;
+
+    private final ExecutorService ioExecutor;
+    private final ExecutorService cpuExecutor;
+
+    public StageScheduler() {
+        this(DEFAULT_IO_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StageScheduler(final int ioThreads, final int cpuThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be at least 1");
+        }
+        if (cpuThreads < 1) {
+            throw new IllegalArgumentException("cpuThreads must be at least 1");
+        }
+        this.ioExecutor = Executors.newFixedThreadPool(ioThreads, newThreadFactory("remapper-io-"));
+        this.cpuExecutor = Executors.newFixedThreadPool(cpuThreads, newThreadFactory("remapper-cpu-"));
+    }
+
+    /**
+     * @return a scheduler shared by the whole JVM, its threads never prevent the JVM from exiting
+     */
+    public static @NotNull StageScheduler common() {
+        return CommonHolder.INSTANCE;
+    }
+
+    public <O> @NotNull Stage<O> submit(final @NotNull String name, final @NotNull StageType type, final @NotNull StageAction<O> action) {
+        final CompletableFuture<O> future = CompletableFuture.supplyAsync(() -> this.run(name, action), this.executor(type));
+        return new Stage<>(name, type, List.of(), future);
+    }
+
+    public <I, O> @NotNull Stage<O> then(final @NotNull String name,
+                                         final @NotNull StageType type,
+                                         final @NotNull Stage<I> input,
+                                         final @NotNull StageFunction<I, O> function) {
+        final CompletableFuture<O> future = input.toFuture()
+                .thenApplyAsync(value -> this.run(name, () -> function.apply(value)), this.executor(type));
+        return new Stage<>(name, type, List.of(input), future);
+    }
+
+    public <A, B, O> @NotNull Stage<O> combine(final @NotNull String name,
+                                               final @NotNull StageType type,
+                                               final @NotNull Stage<A> first,
+                                               final @NotNull Stage<B> second,
+                                               final @NotNull StageBiFunction<A, B, O> function) {
+        final CompletableFuture<O> future = first.toFuture()
+                .thenCombineAsync(second.toFuture(), (a, b) -> this.run(name, () -> function.apply(a, b)), this.executor(type));
+        return new Stage<>(name, type, List.of(first, second), future);
+    }
+
+    @Override
+    public void close() {
+        this.ioExecutor.shutdown();
+        this.cpuExecutor.shutdown();
+        try {
+            this.ioExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            this.cpuExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <O> O run(final String name, final StageAction<O> action) {
+        final long start = System.currentTimeMillis();
+        try {
+            return action.run();
+        } catch (final ProcessingException e) {
+            throw new CompletionException(e);
+        } finally {
+            LOGGER.debug("Stage '{}' finished in {}ms", name, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * @return the executor running the stages of the given type, for work split by a stage of the other type
+     */
+    public @NotNull Executor getExecutor(final @NotNull StageType type) {
+        return this.executor(type);
+    }
+
+    private ExecutorService executor(final StageType type) {
+        return type == StageType.IO ? this.ioExecutor : this.cpuExecutor;
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class CommonHolder {
+
+        private static final StageScheduler INSTANCE = new StageScheduler();
+
+    }
+
+}
\ No newline at end of file
@@ -26,13 +26,48 @@ package be.yvanmazy.minecraftremapper.setting;
 
 import be.yvanmazy.minecraftremapper.DirectionType;
 import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
+import be.yvanmazy.minecraftremapper.process.remap.RemapEngine;
 import be.yvanmazy.minecraftremapper.version.Version;
 import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
+/**
+ * @param cacheDirectory directory of a store shared by several output directories, which get hard links to its jars,
+ *                       mappings and remapped jars; {@code null} to keep everything in the output directory
+ * @param verify         hash every existing file again instead of trusting the hashes recorded by previous runs
+ * @param remapEngine    engine remapping the jar, remapped jars are cached per engine
+ */
 public record PreparationSettings(RequestHttpClient httpClient, Gson gson, DirectionType target, Version version, String outputDirectory,
-                                  boolean remap, boolean decompile) {
+                                  boolean remap, boolean decompile, int downloadConnections, @Nullable String cacheDirectory,
+                                  boolean verify, RemapEngine remapEngine) {
+
+    public static final int DEFAULT_DOWNLOAD_CONNECTIONS = 4;
+
+    /**
+     * Settings with the default value of every option added since, see the {@code with...} methods to change them.
+     */
+    public PreparationSettings(final RequestHttpClient httpClient,
+                               final Gson gson,
+                               final DirectionType target,
+                               final Version version,
+                               final String outputDirectory,
+                               final boolean remap,
+                               final boolean decompile) {
+        this(httpClient,
+                gson,
+                target,
+                version,
+                outputDirectory,
+                remap,
+                decompile,
+                DEFAULT_DOWNLOAD_CONNECTIONS,
+                null,
+                false,
+                RemapEngine.DEFAULT);
+    }
 
     public PreparationSettings {
         Objects.requireNonNull(httpClient, "httpClient must not be null");
@@ -40,6 +75,70 @@ public record PreparationSettings(RequestHttpClient httpClient, Gson gson, Direc
         Objects.requireNonNull(target, "target must not be null");
         Objects.requireNonNull(version, "version must not be null");
         Objects.requireNonNull(outputDirectory, "outputDirectory must not be null");
+        Objects.requireNonNull(remapEngine, "remapEngine must not be null");
+        if (downloadConnections < 1) {
+            throw new IllegalArgumentException("downloadConnections must be at least 1");
+        }
+    }
+
+    @NotNull
+    public PreparationSettings withDownloadConnections(final int downloadConnections) {
+        return new PreparationSettings(this.httpClient,
+                this.gson,
+                this.target,
+                this.version,
+                this.outputDirectory,
+                this.remap,
+                this.decompile,
+                downloadConnections,
+                this.cacheDirectory,
+                this.verify,
+                this.remapEngine);
+    }
+
+    @NotNull
+    public PreparationSettings withCacheDirectory(final @Nullable String cacheDirectory) {
+        return new PreparationSettings(this.httpClient,
+                this.gson,
+                this.target,
+                this.version,
+                this.outputDirectory,
+                this.remap,
+                this.decompile,
+                this.downloadConnections,
+                cacheDirectory,
+                this.verify,
+                this.remapEngine);
+    }
+
+    @NotNull
+    public PreparationSettings withVerify(final boolean verify) {
+        return new PreparationSettings(this.httpClient,
+                this.gson,
+                this.target,
+                this.version,
+                this.outputDirectory,
+                this.remap,
+                this.decompile,
+                this.downloadConnections,
+                this.cacheDirectory,
+                verify,
+                this.remapEngine);
+    }
+
+    @NotNull
+    public PreparationSettings withRemapEngine(final @NotNull RemapEngine remapEngine) {
+        return new PreparationSettings(this.httpClient,
+                this.gson,
+                this.target,
+                this.version,
+                this.outputDirectory,
+                this.remap,
+                this.decompile,
+                this.downloadConnections,
+                this.cacheDirectory,
+                this.verify,
+                remapEngine);
     }
 
     public String getTargetKey() {
@@ -0,0 +1,332 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.store;
+
+import be.yvanmazy.minecraftremapper.util.FileStamp;
+import be.yvanmazy.minecraftremapper.util.FileUtil;
+import be.yvanmazy.minecraftremapper.util.HashUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of downloaded files. Every file is kept once under {@code objects/ab/abcdef...} named after
+ * its SHA-1, and every url is mapped to the SHA-1 of its content by a small file under {@code urls/}. Urls embedding
+ * the SHA-1 of their content, like the ones of Mojang, are found even without being indexed. Files produced from
+ * stored ones, like remapped jars, are kept under {@code derived/} keyed by {@link #derivedKey(String...)}. A store can
+ * be seeded once and copied to another machine as is, or shared by several output directories through hard links.
+ * The {@link FileStamp stamp} of every stored file is kept under {@code stamps/}, so that its content is only hashed
+ * again once the file changed.
+ */
+public final class ArtifactStore {
+
+    private static final Pattern SHA1 = Pattern.compile("[0-9a-f]{40}");
+    private static final Pattern URL_SHA1 = Pattern.compile("/([0-9a-f]{40})/");
+
+    private final Path root;
+    private final Path objects;
+    private final Path urls;
+    private final Path derived;
+    private final Path stamps;
+    private final Path temp;
+
+    public ArtifactStore(final @NotNull Path root) {
+        this.root = Objects.requireNonNull(root, "root must not be null").toAbsolutePath();
+        this.objects = this.root.resolve("objects");
+        this.urls = this.root.resolve("urls");
+        this.derived = this.root.resolve("derived");
+        this.stamps = this.root.resolve("stamps");
+        this.temp = this.root.resolve("tmp");
+    }
+
+    public @NotNull Path getRoot() {
+        return this.root;
+    }
+
+    public boolean contains(final @NotNull String sha1) {
+        return this.findObject(sha1) != null;
+    }
+
+    /**
+     * @return the stored file with the given SHA-1, or {@code null} if it is not in the store
+     */
+    public @Nullable Path findObject(final @NotNull String sha1) {
+        final String key = sha1.toLowerCase(Locale.ROOT);
+        if (!SHA1.matcher(key).matches()) {
+            return null;
+        }
+        final Path path = this.objectPath(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Like {@link #findObject(String)}, but checks the stored file against its SHA-1 first. It is only hashed when its
+     * stamp changed since it was stored or last checked, and evicted if its content does not match anymore.
+     *
+     * @return the stored file with the given SHA-1, or {@code null} if it is not in the store or was corrupted
+     */
+    public @Nullable Path findVerifiedObject(final @NotNull String sha1) throws IOException {
+        final Path object = this.findObject(sha1);
+        if (object == null) {
+            return null;
+        }
+        final String key = sha1.toLowerCase(Locale.ROOT);
+        final String stamp = FileStamp.of(object);
+        if (stamp != null && stamp.equals(this.readStamp(key))) {
+            return object;
+        }
+        if (!HashUtil.hash(object).equals(key)) {
+            this.evict(key);
+            return null;
+        }
+        this.writeStamp(key);
+        return object;
+    }
+
+    /**
+     * @return the SHA-1 of the stored content of the given url, or {@code null} if it is not in the store
+     */
+    public @Nullable String lookup(final @NotNull String url) throws IOException {
+        final Path index = this.urlPath(url);
+        if (Files.isRegularFile(index)) {
+            final String sha1 = Files.readString(index, StandardCharsets.UTF_8).trim();
+            if (this.contains(sha1)) {
+                return sha1;
+            }
+        }
+        final Matcher matcher = URL_SHA1.matcher(url);
+        while (matcher.find()) {
+            if (this.contains(matcher.group(1))) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the stored file of the given url, or {@code null} if it is not in the store
+     */
+    public @Nullable Path find(final @NotNull String url) throws IOException {
+        final String sha1 = this.lookup(url);
+        return sha1 != null ? this.findObject(sha1) : null;
+    }
+
+    /**
+     * Copies the given file into the store and maps the url to it.
+     *
+     * @return the SHA-1 of the file
+     */
+    public @NotNull String put(final @NotNull String url, final @NotNull Path file) throws IOException {
+        return this.put(url, file, HashUtil.hash(file));
+    }
+
+    /**
+     * Copies the given file, whose SHA-1 is already known, into the store and maps the url to it.
+     *
+     * @return the SHA-1 of the file
+     */
+    public @NotNull String put(final @NotNull String url, final @NotNull Path file, final @NotNull String sha1) throws IOException {
+        final String key = sha1.toLowerCase(Locale.ROOT);
+        if (!this.contains(key)) {
+            this.importFile(file, this.objectPath(key));
+            this.writeStamp(key);
+        }
+        this.index(url, key);
+        return key;
+    }
+
+    /**
+     * Moves the given file, whose SHA-1 is already verified, into the store and maps the url to it. The file is left
+     * untouched when the store already contains it.
+     */
+    public void adopt(final @NotNull String url, final @NotNull Path file, final @NotNull String sha1) throws IOException {
+        final String key = sha1.toLowerCase(Locale.ROOT);
+        if (!this.contains(key)) {
+            this.moveIntoPlace(file, this.objectPath(key));
+            this.writeStamp(key);
+        }
+        this.index(url, key);
+    }
+
+    /**
+     * Removes a stored file whose content does not match its SHA-1 anymore, the urls mapped to it become misses.
+     */
+    public void evict(final @NotNull String sha1) throws IOException {
+        final Path object = this.findObject(sha1);
+        if (object != null) {
+            Files.deleteIfExists(object);
+            Files.deleteIfExists(this.stampPath(sha1.toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    /**
+     * @return a directory of the store where partial downloads can be kept between two runs
+     */
+    public @NotNull Path getStagingDirectory() throws IOException {
+        final Path staging = this.temp.resolve("staging");
+        Files.createDirectories(staging);
+        return staging;
+    }
+
+    /**
+     * @return a key identifying a derived file by everything it was produced from
+     */
+    public static @NotNull String derivedKey(final @NotNull String... inputs) throws IOException {
+        return HashUtil.hashParts(inputs);
+    }
+
+    /**
+     * @return the derived file stored under the given key, or {@code null} if it is not in the store
+     */
+    public @Nullable Path findDerived(final @NotNull String key) {
+        if (!SHA1.matcher(key).matches()) {
+            return null;
+        }
+        final Path path = this.derivedPath(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Adds the given file to the store under the key, as a hard link when possible.
+     */
+    public void putDerived(final @NotNull String key, final @NotNull Path file) throws IOException {
+        if (!SHA1.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid derived key: " + key);
+        }
+        this.importFile(file, this.derivedPath(key));
+    }
+
+    /**
+     * Stores the given content and maps the url to it.
+     *
+     * @return the SHA-1 of the content
+     */
+    public @NotNull String put(final @NotNull String url, final byte @NotNull [] content) throws IOException {
+        final String key = HashUtil.hash(content);
+        if (!this.contains(key)) {
+            final Path tempFile = this.newTempFile();
+            try {
+                Files.write(tempFile, content);
+                this.moveIntoPlace(tempFile, this.objectPath(key));
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            this.writeStamp(key);
+        }
+        this.index(url, key);
+        return key;
+    }
+
+    /**
+     * Maps the url to an object already in the store.
+     */
+    public void index(final @NotNull String url, final @NotNull String sha1) throws IOException {
+        final Path index = this.urlPath(url);
+        if (Files.isRegularFile(index) && Files.readString(index, StandardCharsets.UTF_8).trim().equals(sha1)) {
+            return;
+        }
+        FileUtil.writeAtomically(index, writer -> writer.write(sha1));
+    }
+
+    private Path objectPath(final String sha1) {
+        return this.objects.resolve(sha1.substring(0, 2)).resolve(sha1);
+    }
+
+    private Path stampPath(final String sha1) {
+        return this.stamps.resolve(sha1.substring(0, 2)).resolve(sha1);
+    }
+
+    private @Nullable String readStamp(final String sha1) {
+        try {
+            return Files.readString(this.stampPath(sha1), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private void writeStamp(final String sha1) throws IOException {
+        final String stamp = FileStamp.of(this.objectPath(sha1));
+        if (stamp != null) {
+            FileUtil.writeAtomically(this.stampPath(sha1), writer -> writer.write(stamp));
+        }
+    }
+
+    private Path derivedPath(final String key) {
+        return this.derived.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private Path urlPath(final String url) throws IOException {
+        final String key = HashUtil.hash(normalize(url).getBytes(StandardCharsets.UTF_8));
+        return this.urls.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private Path newTempFile() throws IOException {
+        Files.createDirectories(this.temp);
+        return Files.createTempFile(this.temp, "object", ".tmp");
+    }
+
+    /**
+     * Links or copies the file next to its final place, then moves it there so a partial file is never visible.
+     */
+    private void importFile(final Path file, final Path target) throws IOException {
+        final Path tempFile = this.newTempFile();
+        try {
+            FileUtil.linkOrCopy(file, tempFile);
+            this.moveIntoPlace(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void moveIntoPlace(final Path source, final Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            if (!FileUtil.tryMoveAtomically(source, target) && Files.notExists(target)) {
+                Files.move(source, target);
+            }
+        } catch (final FileAlreadyExistsException e) {
+            // Stored concurrently, objects with the same name have the same content
+        }
+    }
+
+    private static String normalize(final String url) {
+        try {
+            return URI.create(url).normalize().toString();
+        } catch (final IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.store;
+
+import be.yvanmazy.minecraftremapper.DirectionType;
+import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
+import be.yvanmazy.minecraftremapper.http.ResumableDownloader;
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.VersionDownload;
+import be.yvanmazy.minecraftremapper.version.VersionMetadataParser;
+import com.google.gson.stream.JsonReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads the metadata, jars and mappings of versions into an {@link ArtifactStore}. Files already in the store
+ * are skipped, so running it again only fetches what is new. Downloads are verified against the SHA-1 announced by
+ * Mojang while streaming, and an interrupted download is resumed by the next run. Each file is fetched with a
+ * single stream, the parallelism comes from mirroring several files at once, so a killed run can always be resumed.
+ */
+public final class StoreMirror {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreMirror.class);
+
+    private final ArtifactStore store;
+    private final RequestHttpClient httpClient;
+    private final ResumableDownloader downloader;
+    private final int parallelism;
+
+    public StoreMirror(final @NotNull ArtifactStore store,
+                       final @NotNull RequestHttpClient httpClient,
+                       final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
+        this.downloader = new ResumableDownloader(httpClient, 1);
+        this.parallelism = parallelism;
+    }
+
+    public @NotNull MirrorResult mirror(final @NotNull List<Version> versions) throws InterruptedException {
+        final AtomicInteger downloaded = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "remapper-mirror");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Metadata first, each of them then queues the files of its version
+            final List<Future<List<Future<?>>>> metadata = new ArrayList<>(versions.size());
+            for (final Version version : versions) {
+                metadata.add(executor.submit(() -> {
+                    final Map<String, VersionDownload> downloads;
+                    try {
+                        downloads = this.mirrorMetadata(version, downloaded, skipped, bytes);
+                    } catch (final IOException | RequestHttpException e) {
+                        LOGGER.error("Failed to mirror metadata of {}", version.id(), e);
+                        failures.add(version.id() + " (metadata): " + e.getMessage());
+                        return List.of();
+                    }
+                    final List<Future<?>> files = new ArrayList<>();
+                    for (final DirectionType type : DirectionType.values()) {
+                        for (final String key : List.of(type.getKey(), type.getKey() + "_mappings")) {
+                            final VersionDownload download = downloads.get(key);
+                            if (download != null) {
+                                files.add(executor.submit(() -> this.mirrorFile(version,
+                                        key,
+                                        download,
+                                        downloaded,
+                                        skipped,
+                                        bytes,
+                                        failures)));
+                            }
+                        }
+                    }
+                    return files;
+                }));
+            }
+            for (final Future<List<Future<?>>> future : metadata) {
+                for (final Future<?> file : future.get()) {
+                    file.get();
+                }
+            }
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Unexpected mirror failure", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new MirrorResult(versions.size(), downloaded.get(), skipped.get(), bytes.get(), new ArrayList<>(failures));
+    }
+
+    private Map<String, VersionDownload> mirrorMetadata(final Version version,
+                                                       final AtomicInteger downloaded,
+                                                       final AtomicInteger skipped,
+                                                       final AtomicLong bytes) throws IOException, RequestHttpException {
+        Path path = this.store.find(version.url());
+        if (path == null && version.sha1() != null) {
+            path = this.store.findObject(version.sha1());
+            if (path != null) {
+                this.store.index(version.url(), version.sha1());
+            }
+        }
+        if (path != null) {
+            skipped.incrementAndGet();
+        } else {
+            path = this.fetch(version.url(), version.sha1(), bytes);
+            downloaded.incrementAndGet();
+        }
+        try (final Reader reader = Files.newBufferedReader(path); final JsonReader jsonReader = new JsonReader(reader)) {
+            return VersionMetadataParser.readDownloads(jsonReader);
+        }
+    }
+
+    private void mirrorFile(final Version version,
+                            final String key,
+                            final VersionDownload download,
+                            final AtomicInteger downloaded,
+                            final AtomicInteger skipped,
+                            final AtomicLong bytes,
+                            final ConcurrentLinkedQueue<String> failures) {
+        try {
+            if (download.sha1() != null && this.store.contains(download.sha1())) {
+                this.store.index(download.url(), download.sha1());
+                skipped.incrementAndGet();
+                return;
+            }
+            this.fetch(download.url(), download.sha1(), bytes);
+            downloaded.incrementAndGet();
+            LOGGER.info("Mirrored {} {}", version.id(), key);
+        } catch (final IOException | RequestHttpException e) {
+            LOGGER.error("Failed to mirror {} {}", version.id(), key, e);
+            failures.add(version.id() + " (" + key + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Downloads the url into the staging directory of the store and moves it into the store once verified.
+     *
+     * @return the stored file
+     */
+    private Path fetch(final String url, final @Nullable String expectedSha1, final AtomicLong bytes)
+            throws IOException, RequestHttpException {
+        if (expectedSha1 == null) {
+            final byte[] content = this.httpClient.getBytes(url);
+            bytes.addAndGet(content.length);
+            return Objects.requireNonNull(this.store.findObject(this.store.put(url, content)));
+        }
+        // Staged under its expected SHA-1 so that an interrupted download is resumed by the next run
+        final Path staged = this.store.getStagingDirectory().resolve(expectedSha1);
+        final String sha1 = this.downloader.download(url, staged, expectedSha1);
+        bytes.addAndGet(Files.size(staged));
+        this.store.adopt(url, staged, sha1);
+        Files.deleteIfExists(staged);
+        return Objects.requireNonNull(this.store.findObject(sha1));
+    }
+
+}
\ No newline at end of file
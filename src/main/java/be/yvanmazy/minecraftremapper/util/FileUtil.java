@@ -27,29 +27,195 @@ package be.yvanmazy.minecraftremapper.util;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
 import java.util.stream.Stream;
 import java.util.zip.ZipFile;
 
 public final class FileUtil {
 
+    private static final int END_SIGNATURE = 0x06054B50;
+    private static final int END_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064B50;
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+    private static final int ZIP64_END_SIGNATURE = 0x06064B50;
+    private static final int ZIP64_END_LENGTH = 56;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+
     private FileUtil() throws IllegalAccessException {
         throw new IllegalAccessException("You cannot instantiate a utility class");
     }
 
+    /**
+     * Fast check of a jar: only its end of central directory record and the bounds of its central directory are read.
+     *
+     * @see #isValidJar(Path, boolean)
+     */
     public static boolean isValidJar(final @NotNull Path path) {
+        return isValidJar(path, false);
+    }
+
+    /**
+     * @param deep {@code true} to parse the whole central directory with a {@link ZipFile}, which costs a read and an
+     *             allocation per entry, instead of only checking where it is
+     */
+    public static boolean isValidJar(final @NotNull Path path, final boolean deep) {
         if (Files.notExists(path)) {
             return false;
         }
-        try (final ZipFile ignored = new ZipFile(path.toFile())) {
+        if (deep) {
+            try (final ZipFile ignored = new ZipFile(path.toFile())) {
+                return true;
+            } catch (final Exception e) {
+                return false;
+            }
+        }
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return hasValidCentralDirectory(channel);
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasValidCentralDirectory(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size < END_LENGTH) {
+            return false;
+        }
+        // The record ends the file, only followed by a comment of at most 64 KiB
+        final int tailLength = (int) Math.min(size, END_LENGTH + MAX_COMMENT_LENGTH);
+        final long tailStart = size - tailLength;
+        final ByteBuffer tail = read(channel, tailStart, tailLength);
+        if (tail == null) {
+            return false;
+        }
+        for (int i = tailLength - END_LENGTH; i >= 0; i--) {
+            if (tail.getInt(i) != END_SIGNATURE || i + END_LENGTH + Short.toUnsignedInt(tail.getShort(i + 20)) > tailLength) {
+                continue;
+            }
+            final long endPosition = tailStart + i;
+            long entries = Short.toUnsignedInt(tail.getShort(i + 10));
+            long directorySize = Integer.toUnsignedLong(tail.getInt(i + 12));
+            long directoryOffset = Integer.toUnsignedLong(tail.getInt(i + 16));
+            long directoryEnd = endPosition;
+            if (entries == 0xFFFFL || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+                // Zip64, the real values are in a record found through the locator preceding this one
+                if (endPosition < ZIP64_LOCATOR_LENGTH) {
+                    return false;
+                }
+                final ByteBuffer locator = read(channel, endPosition - ZIP64_LOCATOR_LENGTH, ZIP64_LOCATOR_LENGTH);
+                if (locator == null || locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+                    return false;
+                }
+                directoryEnd = locator.getLong(8);
+                if (directoryEnd < 0L || directoryEnd > endPosition - ZIP64_LOCATOR_LENGTH - ZIP64_END_LENGTH) {
+                    return false;
+                }
+                final ByteBuffer end = read(channel, directoryEnd, ZIP64_END_LENGTH);
+                if (end == null || end.getInt(0) != ZIP64_END_SIGNATURE) {
+                    return false;
+                }
+                entries = end.getLong(32);
+                directorySize = end.getLong(40);
+                directoryOffset = end.getLong(48);
+            }
+            // The directory is right before its end record, data prepended to the archive only shifts its offset
+            final long directoryStart = directoryEnd - directorySize;
+            if (entries < 0L || directorySize < 0L || directoryOffset < 0L || directoryStart < 0L || directoryOffset > directoryStart) {
+                return false;
+            }
+            if (entries == 0L) {
+                return directorySize == 0L;
+            }
+            final ByteBuffer header = read(channel, directoryStart, 4);
+            return header != null && header.getInt(0) == CENTRAL_HEADER_SIGNATURE;
+        }
+        return false;
+    }
+
+    /**
+     * @return the bytes read at the given position, little endian, or {@code null} if the file is shorter
+     */
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                return null;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Replaces the target with a hard link to the source, or with a copy when the file system cannot link them (e.g.
+     * different devices). The previous target is removed first, so a file shared through a link is never rewritten.
+     *
+     * @return {@code true} if the target is a link
+     */
+    public static boolean linkOrCopy(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (final UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return false;
+        }
+    }
+
+    /**
+     * Moves the source over the target in one step when the file system supports it, so a reader never sees a partial
+     * target, and with a plain replacing move otherwise.
+     */
+    public static void moveAtomically(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Moves the source to the target in one step, leaving the fallback to the caller.
+     *
+     * @return {@code false} if the file system cannot move it atomically, in which case nothing was moved
+     */
+    public static boolean tryMoveAtomically(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
             return true;
-        } catch (final Exception e) {
+        } catch (final AtomicMoveNotSupportedException e) {
             return false;
         }
     }
 
+    /**
+     * Writes the content to a temporary sibling of the file, then moves it over the file with
+     * {@link #moveAtomically(Path, Path)}. The temporary file is removed if writing fails.
+     */
+    public static void writeAtomically(final @NotNull Path path, final @NotNull ContentWriter content) throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (final Writer writer = Files.newBufferedWriter(temp)) {
+                content.write(writer);
+            }
+            moveAtomically(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
     public static void recursiveDelete(final @NotNull Path directory) throws IOException {
         if (Files.notExists(directory)) {
             return;
@@ -61,4 +227,11 @@ public final class FileUtil {
         }
     }
 
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        void write(final @NotNull Writer writer) throws IOException;
+
+    }
+
 }
\ No newline at end of file
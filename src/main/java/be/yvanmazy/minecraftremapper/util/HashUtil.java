@@ -28,43 +28,176 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+/**
+ * SHA-1 helpers. Files are read through a direct buffer kept per thread, so hashing does not copy the content to the
+ * heap, and digests are reused per thread instead of being looked up for every call.
+ */
 public final class HashUtil {
 
+    private static final int BUFFER_SIZE = 128 * 1024;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return newSha1();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    });
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
     private HashUtil() throws IllegalAccessException {
         throw new IllegalAccessException("You cannot instantiate a utility class");
     }
 
     public static @NotNull String hash(final @NotNull Path path) throws IOException {
-        try (final InputStream in = Files.newInputStream(path)) {
-            return hash(in);
+        final MessageDigest digest = threadDigest();
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            update(digest, channel, Long.MAX_VALUE);
+        } catch (final IOException e) {
+            digest.reset();
+            throw e;
         }
+        return toHex(digest.digest());
     }
 
     public static @NotNull String hash(final @NotNull InputStream stream) throws IOException {
-        final MessageDigest hash;
+        final MessageDigest digest = threadDigest();
+        final byte[] buf = new byte[BUFFER_SIZE];
+        int count;
+        try (stream) {
+            while ((count = stream.read(buf)) != -1) digest.update(buf, 0, count);
+        } catch (final IOException e) {
+            digest.reset();
+            throw e;
+        }
+
+        return toHex(digest.digest());
+    }
+
+    public static @NotNull String hash(final byte @NotNull [] bytes) throws IOException {
+        return toHex(threadDigest().digest(bytes));
+    }
+
+    /**
+     * Hashes the given files concurrently on the executor.
+     *
+     * @return the SHA-1 of every file, in the iteration order of the given collection
+     */
+    public static @NotNull Map<Path, String> hashAll(final @NotNull Collection<Path> paths, final @NotNull Executor executor)
+            throws IOException {
+        final List<CompletableFuture<String>> futures = new ArrayList<>(paths.size());
+        for (final Path path : paths) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return hash(path);
+                } catch (final IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        final Map<Path, String> hashes = new LinkedHashMap<>();
+        int i = 0;
+        for (final Path path : paths) {
+            try {
+                hashes.put(path, futures.get(i++).join());
+            } catch (final CompletionException e) {
+                futures.forEach(future -> future.cancel(false));
+                if (e.getCause() instanceof final IOException exception) {
+                    throw exception;
+                }
+                throw new IOException("Failed to hash '" + path + "'", e.getCause());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * @return the SHA-1 of the given strings, each of them followed by a separator so that {@code ("ab", "c")} and
+     * {@code ("a", "bc")} give different hashes
+     */
+    public static @NotNull String hashParts(final @NotNull String... parts) throws IOException {
+        final MessageDigest digest = threadDigest();
+        for (final String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+
+    public static void update(final @NotNull MessageDigest digest, final @NotNull Path path, final long length) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (update(digest, channel, length) < length) {
+                throw new IOException("Unexpected end of file: " + path);
+            }
+        }
+    }
+
+    /**
+     * @return a new digest, owned by the caller; prefer the hash methods, which reuse a digest per thread
+     */
+    public static @NotNull MessageDigest newSha1() throws IOException {
         try {
-            hash = MessageDigest.getInstance("SHA-1");
+            return MessageDigest.getInstance("SHA-1");
         } catch (final NoSuchAlgorithmException e) {
             throw new IOException(e);
         }
-        final byte[] buf = new byte[1024];
-        int count;
-        try (stream) {
-            while ((count = stream.read(buf)) != -1) hash.update(buf, 0, count);
-        }
+    }
+
+    public static @NotNull String toHex(final byte @NotNull [] bytes) {
+        return HEX.formatHex(bytes);
+    }
 
-        final byte[] bytes = hash.digest();
-        final StringBuilder builder = new StringBuilder();
-        for (final byte b : bytes) {
-            builder.append(String.format("%02x", b));
+    /**
+     * Feeds at most {@code length} bytes of the channel, from its current position, to the digest.
+     *
+     * @return the number of bytes read
+     */
+    private static long update(final MessageDigest digest, final FileChannel channel, final long length) throws IOException {
+        final ByteBuffer buffer = BUFFER.get();
+        long remaining = length;
+        while (remaining > 0L) {
+            buffer.clear();
+            if (remaining < buffer.capacity()) {
+                buffer.limit((int) remaining);
+            }
+            final int count = channel.read(buffer);
+            if (count == -1) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            remaining -= count;
         }
+        return length - remaining;
+    }
 
-        return builder.toString();
+    private static MessageDigest threadDigest() throws IOException {
+        try {
+            final MessageDigest digest = DIGEST.get();
+            digest.reset();
+            return digest;
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * Feeds every byte written to the wrapped channel to a digest, so the content is verified without reading it back.
+ */
+public final class HashingChannel implements WritableByteChannel {
+
+    private final WritableByteChannel channel;
+    private final MessageDigest digest;
+
+    public HashingChannel(final @NotNull WritableByteChannel channel, final @NotNull MessageDigest digest) {
+        this.channel = Objects.requireNonNull(channel, "channel must not be null");
+        this.digest = Objects.requireNonNull(digest, "digest must not be null");
+    }
+
+    @Override
+    public int write(final ByteBuffer source) throws IOException {
+        final ByteBuffer written = source.duplicate();
+        final int count = this.channel.write(source);
+        // Only what the channel accepted is hashed, a partial write is completed by the next call
+        written.limit(written.position() + count);
+        this.digest.update(written);
+        return count;
+    }
+
+    /**
+     * @return the hexadecimal SHA-1 of everything written so far; the digest is reset
+     */
+    public @NotNull String digest() {
+        return HashUtil.toHex(this.digest.digest());
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+}
\ No newline at end of file
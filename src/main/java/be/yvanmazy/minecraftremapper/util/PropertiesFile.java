@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Reads and writes the small properties files keeping state between two runs. They only hold what can be computed
+ * again, so an unreadable file is ignored, and they are replaced atomically so that a crash never leaves half of one.
+ */
+public final class PropertiesFile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesFile.class);
+
+    private PropertiesFile() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * @return the properties of the file, empty if it does not exist or cannot be read
+     */
+    public static @NotNull Properties load(final @NotNull Path path) {
+        final Properties properties = new Properties();
+        if (Files.exists(path)) {
+            try (final Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+            } catch (final IOException | IllegalArgumentException e) {
+                LOGGER.warn("Ignoring unreadable file '{}'", path, e);
+                properties.clear();
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @see FileUtil#writeAtomically(Path, FileUtil.ContentWriter)
+     */
+    public static void save(final @NotNull Properties properties, final @NotNull Path path) throws IOException {
+        FileUtil.writeAtomically(path, writer -> properties.store(writer, null));
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public final class ToolUtil {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolUtil.class);
+
+    private static final String VERSIONS_RESOURCE = "/be/yvanmazy/minecraftremapper/tool-versions.properties";
+    private static final String PROJECT_MODULE = "be.yvanmazy:MinecraftRemapper";
+    private static final String UNKNOWN_VERSION = "unknown";
+
+    private ToolUtil() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * @param module {@code group:name} of a dependency
+     * @return the version of the dependency resolved by the build, part of the fingerprints so that upgrading a tool
+     * invalidates what it produced, or {@code "unknown"}
+     */
+    public static @NotNull String getVersion(final @NotNull String module) {
+        return VersionsHolder.INSTANCE.getProperty(module, UNKNOWN_VERSION);
+    }
+
+    /**
+     * @return the version of this project, or {@code "unknown"}
+     */
+    public static @NotNull String getProjectVersion() {
+        return getVersion(PROJECT_MODULE);
+    }
+
+    private static final class VersionsHolder {
+
+        // Generated by the generateToolVersions task of the build
+        private static final Properties INSTANCE = load();
+
+        private VersionsHolder() throws IllegalAccessException {
+            throw new IllegalAccessException("You cannot instantiate a holder class");
+        }
+
+        private static Properties load() {
+            final Properties properties = new Properties();
+            try (final InputStream stream = ToolUtil.class.getResourceAsStream(VERSIONS_RESOURCE)) {
+                if (stream != null) {
+                    properties.load(stream);
+                } else {
+                    LOGGER.warn("Missing '{}', tool versions are unknown and cached outputs are not invalidated by upgrades",
+                            VERSIONS_RESOURCE);
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to read '{}', tool versions are unknown", VERSIONS_RESOURCE, e);
+            }
+            return properties;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Deletes large directory trees in the background. A tree is first renamed into a {@code .trash} directory, which is
+ * atomic and immediate, so its former location can be reused right away. Trees left there by a process that died
+ * before deleting them are removed by {@link #empty(Path)}.
+ */
+public final class Trash {
+
+    public static final String DIRECTORY_NAME = ".trash";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Trash.class);
+
+    private static final ExecutorService DELETER = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "trash-deleter");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private Trash() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * Moves the directory into the trash of the given root, then deletes it in the background. When it cannot be
+     * moved, e.g. the trash is on another file system, it is deleted before returning.
+     *
+     * @param root the directory holding the trash, on the same file system as the discarded directory
+     * @return completed once the directory is deleted
+     */
+    public static @NotNull CompletableFuture<Void> discard(final @NotNull Path directory, final @NotNull Path root) throws IOException {
+        if (Files.notExists(directory)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final Path trash = root.resolve(DIRECTORY_NAME);
+        Files.createDirectories(trash);
+        final Path target = trash.resolve(directory.getFileName() + "-" + System.nanoTime());
+        if (!FileUtil.tryMoveAtomically(directory, target)) {
+            FileUtil.recursiveDelete(directory);
+            return CompletableFuture.completedFuture(null);
+        }
+        return schedule(target);
+    }
+
+    /**
+     * Deletes in the background what is left in the trash of the given root.
+     *
+     * @return completed once the trash is empty
+     */
+    public static @NotNull CompletableFuture<Void> empty(final @NotNull Path root) {
+        final Path trash = root.resolve(DIRECTORY_NAME);
+        if (Files.notExists(trash)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Only its entries are deleted, the trash itself may be receiving a discarded directory
+        return CompletableFuture.runAsync(() -> {
+            final List<Path> entries;
+            try (final Stream<Path> stream = Files.list(trash)) {
+                entries = stream.toList();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to list '{}'", trash, e);
+                return;
+            }
+            entries.forEach(Trash::tryDelete);
+        }, DELETER);
+    }
+
+    private static CompletableFuture<Void> schedule(final Path path) {
+        return CompletableFuture.runAsync(() -> tryDelete(path), DELETER);
+    }
+
+    private static void tryDelete(final Path path) {
+        try {
+            delete(path);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to delete '{}', it will be deleted on the next start", path, e);
+        }
+    }
+
+    /**
+     * Deletes the tree while walking it, without listing it first. A path already deleted, e.g. by a task emptying
+     * the whole trash, is ignored.
+     */
+    private static void delete(final Path path) throws IOException {
+        if (Files.notExists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exception) throws IOException {
+                if (exception instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw exception;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path directory, final IOException exception) throws IOException {
+                if (exception != null && !(exception instanceof NoSuchFileException)) {
+                    throw exception;
+                }
+                Files.deleteIfExists(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+}
\ No newline at end of file
@@ -25,11 +25,24 @@
 package be.yvanmazy.minecraftremapper.version;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.OffsetDateTime;
 import java.util.Objects;
 
-public record Version(@NotNull String id, @NotNull VersionType type, @NotNull String url, OffsetDateTime time, OffsetDateTime releaseTime) {
+/**
+ * @param sha1 SHA-1 of the metadata file behind {@code url}, provided by the v2 manifest
+ */
+public record Version(@NotNull String id, @NotNull VersionType type, @NotNull String url, OffsetDateTime time, OffsetDateTime releaseTime,
+                      @Nullable String sha1) {
+
+    public Version(final @NotNull String id,
+                   final @NotNull VersionType type,
+                   final @NotNull String url,
+                   final OffsetDateTime time,
+                   final OffsetDateTime releaseTime) {
+        this(id, type, url, time, releaseTime, null);
+    }
 
     public Version {
         Objects.requireNonNull(id, "id must not be null");
@@ -24,69 +24,172 @@
 
 package be.yvanmazy.minecraftremapper.version;
 
-import com.google.gson.*;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
-public class VersionJsonAdapter implements JsonSerializer<Version>, JsonDeserializer<Version> {
+/**
+ * Streaming adapter reading and writing {@link Version} tokens directly, without an intermediate {@code JsonElement}.
+ */
+public class VersionJsonAdapter extends TypeAdapter<Version> {
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final VersionJsonAdapter INSTANCE = new VersionJsonAdapter();
 
-    @Override
-    public Version deserialize(final JsonElement json,
-                               final Type typeOfT,
-                               final JsonDeserializationContext context) throws JsonParseException {
-        return deserialize(json.getAsJsonObject());
+    @Contract("_ -> new")
+    public static @NotNull JsonObject serialize(final @NotNull Version version) {
+        return INSTANCE.toJsonTree(version).getAsJsonObject();
     }
 
-    @Override
-    public JsonElement serialize(final Version src, final Type typeOfSrc, final JsonSerializationContext context) {
-        return serialize(src);
+    @Contract("_ -> new")
+    public static @NotNull Version deserialize(final @NotNull JsonObject object) {
+        return INSTANCE.fromJsonTree(object);
     }
 
-    @Contract("_ -> new")
-    public static @NotNull JsonObject serialize(final @NotNull Version version) {
-        final JsonObject object = new JsonObject();
-        object.addProperty("id", version.id());
-        object.addProperty("type", version.type().name());
-        object.addProperty("url", version.url());
+    @Override
+    public void write(final JsonWriter out, final Version version) throws IOException {
+        if (version == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(version.id());
+        out.name("type").value(version.type().name());
+        out.name("url").value(version.url());
         if (version.time() != null) {
-            object.addProperty("time", FORMATTER.format(version.time()));
+            out.name("time").value(FORMATTER.format(version.time()));
         }
         if (version.releaseTime() != null) {
-            object.addProperty("releaseTime", FORMATTER.format(version.releaseTime()));
+            out.name("releaseTime").value(FORMATTER.format(version.releaseTime()));
         }
-        return object;
+        if (version.sha1() != null) {
+            out.name("sha1").value(version.sha1());
+        }
+        out.endObject();
     }
 
-    @Contract("_ -> new")
-    public static @NotNull Version deserialize(final JsonObject object) {
-        final String id = object.get("id").getAsString();
-        final String rawType = object.get("type").getAsString();
+    @Override
+    public Version read(final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String id = null;
+        String rawType = null;
+        String url = null;
+        OffsetDateTime time = null;
+        OffsetDateTime releaseTime = null;
+        String sha1 = null;
+        DateTimeParseException invalidTime = null;
+
+        final String path = in.getPath();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> id = readString(in);
+                case "type" -> rawType = readString(in);
+                case "url" -> url = readString(in);
+                case "time" -> {
+                    try {
+                        time = readTime(in);
+                    } catch (final DateTimeParseException e) {
+                        invalidTime = e;
+                    }
+                }
+                case "releaseTime" -> {
+                    try {
+                        releaseTime = readTime(in);
+                    } catch (final DateTimeParseException e) {
+                        invalidTime = e;
+                    }
+                }
+                case "sha1" -> sha1 = readString(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        // The whole object is consumed before validating, so that the reader can continue with the next version
+        if (id == null || rawType == null || url == null) {
+            throw new JsonParseException("Incomplete version at " + path);
+        }
+        if (invalidTime != null) {
+            throw new JsonParseException("Invalid time for version '" + id + "'", invalidTime);
+        }
         final VersionType type = VersionType.fromString(rawType);
         if (type == null) {
-            throw new IllegalArgumentException("Invalid version type: '" + rawType + "' for version '" + id + "'");
+            throw new JsonParseException("Invalid version type: '" + rawType + "' for version '" + id + "'");
         }
-        final String url = object.get("url").getAsString();
-        final OffsetDateTime time = parseTime(object.get("time"));
-        final OffsetDateTime releaseTime = parseTime(object.get("releaseTime"));
+        return new Version(id, type, url, time, releaseTime, sha1);
+    }
 
-        return new Version(id, type, url, time, releaseTime);
+    /**
+     * @return the string value, or {@code null} after skipping a {@code null} or a value of another type, which is then
+     * reported as missing once the whole object is consumed
+     */
+    private static String readString(final JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.STRING) {
+            in.skipValue();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static OffsetDateTime readTime(final JsonReader in) throws IOException {
+        final String string = readString(in);
+        return string != null ? parseTime(string) : null;
     }
 
-    private static OffsetDateTime parseTime(final JsonElement element) {
-        if (element instanceof final JsonPrimitive primitive && primitive.isString()) {
-            return parseTime(element.getAsString());
+    /**
+     * Parses the fixed-width format used by Mojang ({@code 2024-06-13T08:24:03+00:00}) without going through the
+     * formatter, other formats are delegated to {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}.
+     */
+    static @NotNull OffsetDateTime parseTime(final @NotNull String string) {
+        if (string.length() != 25 || string.charAt(4) != '-' || string.charAt(7) != '-' || string.charAt(10) != 'T' ||
+                string.charAt(13) != ':' || string.charAt(16) != ':' || string.charAt(22) != ':') {
+            return OffsetDateTime.parse(string, FORMATTER);
+        }
+        final char sign = string.charAt(19);
+        if (sign != '+' && sign != '-') {
+            return OffsetDateTime.parse(string, FORMATTER);
+        }
+        try {
+            final int offsetSign = sign == '-' ? -1 : 1;
+            final ZoneOffset offset = ZoneOffset.ofHoursMinutes(offsetSign * digits(string, 20, 22), offsetSign * digits(string, 23, 25));
+            return OffsetDateTime.of(digits(string, 0, 4),
+                    digits(string, 5, 7),
+                    digits(string, 8, 10),
+                    digits(string, 11, 13),
+                    digits(string, 14, 16),
+                    digits(string, 17, 19),
+                    0,
+                    offset);
+        } catch (final RuntimeException e) {
+            return OffsetDateTime.parse(string, FORMATTER);
         }
-        return null;
     }
 
-    private static OffsetDateTime parseTime(final @NotNull String string) {
-        return OffsetDateTime.parse(string, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    private static int digits(final String string, final int start, final int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = string.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit in '" + string + "'");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
     }
 
 }
\ No newline at end of file
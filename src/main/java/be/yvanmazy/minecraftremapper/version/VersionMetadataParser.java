@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming parser for version metadata files. Only the {@code downloads} object is read, everything else such as
+ * {@code libraries} or {@code arguments} is skipped without being materialized.
+ */
+public final class VersionMetadataParser {
+
+    private VersionMetadataParser() throws IllegalAccessException {
+        throw new IllegalAccessException("You cannot instantiate a utility class");
+    }
+
+    /**
+     * @return the downloads of the version, keyed by their name (e.g. {@code client}, {@code client_mappings})
+     */
+    public static @NotNull Map<String, VersionDownload> readDownloads(final @NotNull JsonReader reader) throws IOException {
+        final Map<String, VersionDownload> downloads = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("downloads")) {
+                reader.skipValue();
+                continue;
+            }
+            downloads.putAll(readDownloadsObject(reader));
+        }
+        reader.endObject();
+        return downloads;
+    }
+
+    /**
+     * Reads a {@code downloads} object, the reader must be positioned on its opening brace.
+     */
+    public static @NotNull Map<String, VersionDownload> readDownloadsObject(final @NotNull JsonReader reader) throws IOException {
+        final Map<String, VersionDownload> downloads = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = reader.nextName();
+            downloads.put(key, readDownload(reader));
+        }
+        reader.endObject();
+        return downloads;
+    }
+
+    private static VersionDownload readDownload(final JsonReader reader) throws IOException {
+        String sha1 = null;
+        long size = -1L;
+        String url = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sha1" -> sha1 = nextNullableString(reader);
+                case "size" -> size = reader.nextLong();
+                case "url" -> url = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (url == null) {
+            throw new IOException("Download entry without url at " + reader.getPath());
+        }
+        return new VersionDownload(sha1, size, url);
+    }
+
+    private static String nextNullableString(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+}
\ No newline at end of file
@@ -34,6 +34,20 @@ public enum VersionType {
     private static final VersionType[] CACHED_VALUES = values();
 
     public static VersionType fromString(final String string) {
+        if (string == null) {
+            return null;
+        }
+        // Fast path for the values used by the manifest
+        final VersionType known = switch (string) {
+            case "release" -> RELEASE;
+            case "snapshot" -> SNAPSHOT;
+            case "old_beta" -> OLD_BETA;
+            case "old_alpha" -> OLD_ALPHA;
+            default -> null;
+        };
+        if (known != null) {
+            return known;
+        }
         for (final VersionType type : CACHED_VALUES) {
             if (type.name().equalsIgnoreCase(string)) {
                 return type;
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version.fetcher;
+
+import be.yvanmazy.minecraftremapper.http.CacheValidators;
+import be.yvanmazy.minecraftremapper.util.FileUtil;
+import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.VersionJsonAdapter;
+import be.yvanmazy.minecraftremapper.version.fetcher.exception.VersionFetchingException;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps the manifest on disk and serves it while it is younger than the TTL. Once expired, it is revalidated with a
+ * conditional request, and the stale copy is still served when the manifest cannot be fetched.
+ */
+final class CachingVersionFetcher implements VersionFetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingVersionFetcher.class);
+    private static final VersionJsonAdapter ADAPTER = new VersionJsonAdapter();
+
+    private final VersionFetcher delegate;
+    private final Path cacheFile;
+    private final Duration ttl;
+    private final Gson gson;
+
+    public CachingVersionFetcher(final @NotNull VersionFetcher delegate,
+                                 final @NotNull Path cacheFile,
+                                 final @NotNull Duration ttl,
+                                 final @NotNull Gson gson) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.cacheFile = Objects.requireNonNull(cacheFile, "cacheFile must not be null");
+        this.ttl = Objects.requireNonNull(ttl, "ttl must not be null");
+        this.gson = Objects.requireNonNull(gson, "gson must not be null");
+    }
+
+    @Override
+    public @NotNull List<Version> fetchVersions() throws VersionFetchingException {
+        final CacheEntry entry = this.readCache();
+        final long now = System.currentTimeMillis();
+        if (entry != null && now - entry.fetchedAt() < this.ttl.toMillis()) {
+            return entry.versions();
+        }
+
+        final VersionFetchResult result;
+        try {
+            result = this.delegate.fetchVersions(entry != null ? entry.validators() : null);
+        } catch (final VersionFetchingException e) {
+            if (entry == null) {
+                throw e;
+            }
+            LOGGER.warn("Failed to fetch Minecraft versions, using cached manifest", e);
+            return entry.versions();
+        }
+
+        final List<Version> versions;
+        if (result.isNotModified() && entry != null) {
+            versions = entry.versions();
+        } else if (result.versions() != null) {
+            versions = result.versions();
+        } else {
+            // Not modified without a cached copy, this can only happen with a misbehaving server
+            return this.delegate.fetchVersions();
+        }
+        this.writeCache(new CacheEntry(now, result.validators(), versions));
+        return versions;
+    }
+
+    @Override
+    public @NotNull VersionFetchResult fetchVersions(final CacheValidators validators) throws VersionFetchingException {
+        return this.delegate.fetchVersions(validators);
+    }
+
+    private CacheEntry readCache() {
+        if (Files.notExists(this.cacheFile)) {
+            return null;
+        }
+        try (final JsonReader reader = this.gson.newJsonReader(Files.newBufferedReader(this.cacheFile))) {
+            long fetchedAt = -1L;
+            String etag = null;
+            String lastModified = null;
+            List<Version> versions = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "fetchedAt" -> fetchedAt = reader.nextLong();
+                    case "etag" -> etag = nextNullableString(reader);
+                    case "lastModified" -> lastModified = nextNullableString(reader);
+                    case "versions" -> {
+                        versions = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            versions.add(ADAPTER.read(reader));
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (fetchedAt < 0L || versions == null) {
+                return null;
+            }
+            return new CacheEntry(fetchedAt, new CacheValidators(etag, lastModified), List.copyOf(versions));
+        } catch (final Exception e) {
+            LOGGER.warn("Failed to read cached manifest '{}'", this.cacheFile, e);
+            return null;
+        }
+    }
+
+    private void writeCache(final CacheEntry entry) {
+        try {
+            FileUtil.writeAtomically(this.cacheFile, out -> {
+                try (final JsonWriter writer = this.gson.newJsonWriter(out)) {
+                    writer.beginObject();
+                    writer.name("fetchedAt").value(entry.fetchedAt());
+                    writer.name("etag").value(entry.validators().etag());
+                    writer.name("lastModified").value(entry.validators().lastModified());
+                    writer.name("versions").beginArray();
+                    for (final Version version : entry.versions()) {
+                        ADAPTER.write(writer, version);
+                    }
+                    writer.endArray();
+                    writer.endObject();
+                }
+            });
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to write cached manifest '{}'", this.cacheFile, e);
+        }
+    }
+
+    private static String nextNullableString(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private record CacheEntry(long fetchedAt, CacheValidators validators, List<Version> versions) {
+
+    }
+
+}
\ No newline at end of file
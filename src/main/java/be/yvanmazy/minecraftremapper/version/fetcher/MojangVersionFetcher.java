@@ -24,25 +24,34 @@
 
 package be.yvanmazy.minecraftremapper.version.fetcher;
 
+import be.yvanmazy.minecraftremapper.http.CacheValidators;
+import be.yvanmazy.minecraftremapper.http.ConditionalResponse;
 import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
 import be.yvanmazy.minecraftremapper.version.Version;
 import be.yvanmazy.minecraftremapper.version.VersionJsonAdapter;
 import be.yvanmazy.minecraftremapper.version.fetcher.exception.VersionFetchingException;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 final class MojangVersionFetcher implements VersionFetcher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MojangVersionFetcher.class);
-    private static final String URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
+    private static final String URL = "https://launchermeta.mojang.com/mc/game/version_manifest_v2.json";
+    private static final VersionJsonAdapter ADAPTER = new VersionJsonAdapter();
 
     private final RequestHttpClient httpClient;
     private final Gson gson;
@@ -54,25 +63,59 @@ final class MojangVersionFetcher implements VersionFetcher {
 
     @Override
     public @NotNull List<Version> fetchVersions() throws VersionFetchingException {
-        try {
-            final String rawJson = this.httpClient.getString(URL);
-            final JsonObject json = this.gson.fromJson(rawJson, JsonObject.class);
+        final List<Version> versions = this.fetchVersions(null).versions();
+        if (versions == null) {
+            throw new VersionFetchingException("Manifest reported as not modified without validators");
+        }
+        return versions;
+    }
 
-            return this.parseVersions(json.getAsJsonArray("versions"));
+    @Override
+    public @NotNull VersionFetchResult fetchVersions(final @Nullable CacheValidators validators) throws VersionFetchingException {
+        try {
+            final ConditionalResponse<List<Version>> response = this.httpClient.getConditional(URL, validators, this::readManifest);
+            if (response.notModified() || response.body() == null) {
+                return new VersionFetchResult(null, response.validators());
+            }
+            return new VersionFetchResult(response.body(), response.validators());
         } catch (final Exception e) {
             throw new VersionFetchingException(e);
         }
     }
 
-    private List<Version> parseVersions(final JsonArray versions) {
-        return versions.asList().stream().filter(JsonElement::isJsonObject).map(JsonElement::getAsJsonObject).map(object -> {
+    private List<Version> readManifest(final InputStream stream) throws IOException {
+        // Single streaming pass over the body: only the 'versions' array is read, 'latest' and unknown fields are skipped
+        try (final JsonReader reader = this.gson.newJsonReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            List<Version> versions = List.of();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("versions")) {
+                    versions = this.readVersions(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return versions;
+        }
+    }
+
+    private List<Version> readVersions(final JsonReader reader) throws IOException {
+        final List<Version> versions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
             try {
-                return VersionJsonAdapter.deserialize(object);
-            } catch (final Exception e) {
+                versions.add(ADAPTER.read(reader));
+            } catch (final JsonParseException e) {
                 LOGGER.warn("Failed to parse version", e);
-                return null;
             }
-        }).filter(Objects::nonNull).toList();
+        }
+        reader.endArray();
+        return List.copyOf(versions);
     }
 
 }
\ No newline at end of file
@@ -24,13 +24,17 @@
 
 package be.yvanmazy.minecraftremapper.version.fetcher;
 
+import be.yvanmazy.minecraftremapper.http.CacheValidators;
 import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
 import be.yvanmazy.minecraftremapper.version.Version;
 import be.yvanmazy.minecraftremapper.version.fetcher.exception.VersionFetchingException;
 import com.google.gson.Gson;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 public interface VersionFetcher {
@@ -47,7 +51,28 @@ public interface VersionFetcher {
         return new MojangVersionFetcher(httpClient, gson);
     }
 
+    /**
+     * Wraps a fetcher with a manifest cached in the given file. The cache is served as long as it is younger than the
+     * TTL, then revalidated with a conditional request. It is also served when the manifest cannot be fetched.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    static VersionFetcher caching(final @NotNull VersionFetcher delegate,
+                                  final @NotNull Path cacheFile,
+                                  final @NotNull Duration ttl,
+                                  final @NotNull Gson gson) {
+        return new CachingVersionFetcher(delegate, cacheFile, ttl, gson);
+    }
+
     @NotNull
     List<Version> fetchVersions() throws VersionFetchingException;
 
+    /**
+     * Fetches the versions unless they did not change since the given validators were returned.
+     */
+    @NotNull
+    default VersionFetchResult fetchVersions(final @Nullable CacheValidators validators) throws VersionFetchingException {
+        return new VersionFetchResult(this.fetchVersions(), CacheValidators.NONE);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version.index;
+
+import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Outcome of {@link VersionIndex#update(List, RequestHttpClient, int)}.
+ *
+ * @param indexed number of versions whose metadata was fetched and indexed
+ * @param failed  ids of the versions whose metadata could not be fetched, they are fetched again by the next update
+ */
+public record IndexUpdate(int indexed, @NotNull List<String> failed) {
+
+    public static final IndexUpdate UNCHANGED = new IndexUpdate(0, List.of());
+
+    public IndexUpdate {
+        failed = List.copyOf(failed);
+    }
+
+    /**
+     * @return true if the index changed and should be saved
+     */
+    public boolean changed() {
+        return this.indexed > 0;
+    }
+
+}
\ No newline at end of file
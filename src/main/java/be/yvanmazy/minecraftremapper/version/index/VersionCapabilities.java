@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version.index;
+
+import be.yvanmazy.minecraftremapper.DirectionType;
+import be.yvanmazy.minecraftremapper.version.VersionDownload;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What a version provides, as declared by its metadata file.
+ *
+ * @param metadataUrl url of the metadata the downloads were read from, used to detect republished versions
+ * @param downloads   jars and mappings of the version, keyed like in the metadata ({@code client}, {@code server_mappings}...)
+ */
+public record VersionCapabilities(@NotNull String id, @NotNull String metadataUrl, @NotNull Map<String, VersionDownload> downloads) {
+
+    public VersionCapabilities {
+        Objects.requireNonNull(id, "id must not be null");
+        Objects.requireNonNull(metadataUrl, "metadataUrl must not be null");
+        downloads = Map.copyOf(downloads);
+    }
+
+    public @Nullable VersionDownload getJar(final @NotNull DirectionType type) {
+        return this.downloads.get(type.getKey());
+    }
+
+    public @Nullable VersionDownload getMapping(final @NotNull DirectionType type) {
+        return this.downloads.get(type.getKey() + "_mappings");
+    }
+
+    public boolean hasJar(final @NotNull DirectionType type) {
+        return this.getJar(type) != null;
+    }
+
+    /**
+     * @return true if both the jar and its mapping are available, so that the version can be remapped
+     */
+    public boolean isRemappable(final @NotNull DirectionType type) {
+        return this.hasJar(type) && this.getMapping(type) != null;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version.index;
+
+import be.yvanmazy.minecraftremapper.DirectionType;
+import be.yvanmazy.minecraftremapper.http.RequestHttpClient;
+import be.yvanmazy.minecraftremapper.util.FileUtil;
+import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.VersionDownload;
+import be.yvanmazy.minecraftremapper.version.VersionMetadataParser;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Persisted index of the jars and mappings of every version. Missing or republished versions are fetched in parallel
+ * by {@link #update(List, RequestHttpClient, int)}, everything else is answered locally.
+ */
+public final class VersionIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VersionIndex.class);
+
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private final Path file;
+    private final Gson gson;
+    private final Map<String, VersionCapabilities> entries = new ConcurrentHashMap<>();
+
+    private VersionIndex(final @NotNull Path file, final @NotNull Gson gson) {
+        this.file = Objects.requireNonNull(file, "file must not be null");
+        this.gson = Objects.requireNonNull(gson, "gson must not be null");
+    }
+
+    /**
+     * Loads the index stored in the given file, an unreadable or missing file results in an empty index.
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull VersionIndex load(final @NotNull Path file, final @NotNull Gson gson) {
+        final VersionIndex index = new VersionIndex(file, gson);
+        if (Files.exists(file)) {
+            try {
+                index.read();
+            } catch (final IOException | RuntimeException e) {
+                LOGGER.warn("Failed to read version index '{}', it will be rebuilt", file, e);
+                index.entries.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Fetches the metadata of every version that is not indexed yet, or whose metadata url changed. The fetched versions
+     * are only added once every request completed, an interrupted update leaves the index as it was.
+     *
+     * @return the number of indexed versions and the ids of the ones that failed
+     */
+    public @NotNull IndexUpdate update(final @NotNull List<Version> versions,
+                                       final @NotNull RequestHttpClient httpClient,
+                                       final int parallelism) throws InterruptedException {
+        final List<Version> outdated = versions.stream().filter(version -> !this.isUpToDate(version)).toList();
+        if (outdated.isEmpty()) {
+            return IndexUpdate.UNCHANGED;
+        }
+        LOGGER.info("Indexing {} versions...", outdated.size());
+        final Map<String, VersionCapabilities> indexed = new ConcurrentHashMap<>();
+        final Set<String> failed = ConcurrentHashMap.newKeySet();
+        final Semaphore permits = new Semaphore(parallelism);
+        final List<CompletableFuture<?>> futures = new ArrayList<>(outdated.size());
+        try {
+            for (final Version version : outdated) {
+                permits.acquire();
+                futures.add(httpClient.getStringAsync(version.url()).thenApply(json -> {
+                    try {
+                        return VersionMetadataParser.readDownloads(new JsonReader(new StringReader(json)));
+                    } catch (final IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }).whenComplete((downloads, throwable) -> {
+                    try {
+                        if (throwable != null) {
+                            LOGGER.warn("Failed to index version '{}'", version.id(), throwable);
+                            failed.add(version.id());
+                        } else {
+                            indexed.put(version.id(), new VersionCapabilities(version.id(), version.url(), downloads));
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            // Every permit is back once the last request completed
+            permits.acquire(parallelism);
+        } catch (final InterruptedException e) {
+            // A cancelled request never runs its completion, and the ones still running only reach the local maps
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        this.entries.putAll(indexed);
+        return new IndexUpdate(indexed.size(), failed.stream().sorted().toList());
+    }
+
+    public @Nullable VersionCapabilities get(final @NotNull String id) {
+        return this.entries.get(id);
+    }
+
+    /**
+     * @return true if the version is indexed and provides both the jar and the mapping of the given type
+     */
+    public boolean isRemappable(final @NotNull Version version, final @NotNull DirectionType type) {
+        final VersionCapabilities capabilities = this.entries.get(version.id());
+        return capabilities != null && capabilities.isRemappable(type);
+    }
+
+    public void save() throws IOException {
+        FileUtil.writeAtomically(this.file, out -> {
+            try (final JsonWriter writer = this.gson.newJsonWriter(out)) {
+                writer.beginObject();
+                // Sorted so that the file stays stable between runs
+                for (final VersionCapabilities capabilities : new TreeMap<>(this.entries).values()) {
+                    writer.name(capabilities.id()).beginObject();
+                    writer.name("metadataUrl").value(capabilities.metadataUrl());
+                    writer.name("downloads").beginObject();
+                    for (final Map.Entry<String, VersionDownload> entry : new TreeMap<>(capabilities.downloads()).entrySet()) {
+                        final VersionDownload download = entry.getValue();
+                        writer.name(entry.getKey()).beginObject();
+                        writer.name("sha1").value(download.sha1());
+                        writer.name("size").value(download.size());
+                        writer.name("url").value(download.url());
+                        writer.endObject();
+                    }
+                    writer.endObject();
+                    writer.endObject();
+                }
+                writer.endObject();
+            }
+        });
+    }
+
+    private boolean isUpToDate(final Version version) {
+        final VersionCapabilities capabilities = this.entries.get(version.id());
+        return capabilities != null && capabilities.metadataUrl().equals(version.url());
+    }
+
+    private void read() throws IOException {
+        try (final JsonReader reader = this.gson.newJsonReader(Files.newBufferedReader(this.file))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String id = reader.nextName();
+                String metadataUrl = null;
+                Map<String, VersionDownload> downloads = Map.of();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "metadataUrl" -> metadataUrl = reader.nextString();
+                        case "downloads" -> downloads = VersionMetadataParser.readDownloadsObject(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (metadataUrl != null) {
+                    this.entries.put(id, new VersionCapabilities(id, metadataUrl, downloads));
+                }
+            }
+            reader.endObject();
+        }
+    }
+
+}
\ No newline at end of file
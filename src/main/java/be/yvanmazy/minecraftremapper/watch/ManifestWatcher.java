@@ -0,0 +1,311 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.watch;
+
+import be.yvanmazy.minecraftremapper.DirectionType;
+import be.yvanmazy.minecraftremapper.http.CacheValidators;
+import be.yvanmazy.minecraftremapper.process.RemapperProcessor;
+import be.yvanmazy.minecraftremapper.process.exception.ProcessingException;
+import be.yvanmazy.minecraftremapper.process.stage.StageScheduler;
+import be.yvanmazy.minecraftremapper.setting.PreparationSettings;
+import be.yvanmazy.minecraftremapper.util.FileUtil;
+import be.yvanmazy.minecraftremapper.version.Version;
+import be.yvanmazy.minecraftremapper.version.fetcher.VersionFetchResult;
+import be.yvanmazy.minecraftremapper.version.fetcher.VersionFetcher;
+import be.yvanmazy.minecraftremapper.version.fetcher.exception.VersionFetchingException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Polls the manifest with conditional requests and sends every newly published version through the pipeline.
+ * The ids of the versions processed for every target are stored in a state file, so versions published, queued or
+ * failed while the watcher was stopped are still processed on the next start. New versions wait in a bounded queue;
+ * when it is full they are picked up again by a later poll. A failed version is retried with an exponential backoff.
+ */
+public final class ManifestWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManifestWatcher.class);
+    private static final int HISTORY_SIZE = 100;
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private final VersionFetcher fetcher;
+    private final BiFunction<Version, DirectionType, PreparationSettings> settingsFactory;
+    private final List<DirectionType> targets;
+    private final StageScheduler scheduler;
+    private final Path stateFile;
+    private final Duration pollInterval;
+    private final BlockingQueue<Version> queue;
+    private final Set<String> knownIds = new HashSet<>();
+    private final Set<String> pendingIds = new HashSet<>();
+    private final Map<String, Retry> retries = new HashMap<>();
+    private final Deque<ProcessedVersion> history = new ArrayDeque<>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "manifest-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread worker = new Thread(this::work, "manifest-watcher-worker");
+
+    private CacheValidators validators;
+    private List<Version> versions = List.of();
+    private boolean initialized;
+
+    public ManifestWatcher(final @NotNull VersionFetcher fetcher,
+                           final @NotNull BiFunction<Version, DirectionType, PreparationSettings> settingsFactory,
+                           final @NotNull List<DirectionType> targets,
+                           final @NotNull StageScheduler scheduler,
+                           final @NotNull Path stateFile,
+                           final @NotNull Duration pollInterval,
+                           final int queueCapacity) {
+        this.fetcher = Objects.requireNonNull(fetcher, "fetcher must not be null");
+        this.settingsFactory = Objects.requireNonNull(settingsFactory, "settingsFactory must not be null");
+        this.targets = List.copyOf(targets);
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler must not be null");
+        this.stateFile = Objects.requireNonNull(stateFile, "stateFile must not be null");
+        this.pollInterval = Objects.requireNonNull(pollInterval, "pollInterval must not be null");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void start() {
+        this.readState();
+        this.worker.setDaemon(true);
+        this.worker.start();
+        this.poller.scheduleWithFixedDelay(this::poll, 0L, this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        this.closed.await();
+    }
+
+    /**
+     * @return the most recently processed versions, the oldest first
+     */
+    public synchronized @NotNull @UnmodifiableView List<ProcessedVersion> getHistory() {
+        return Collections.unmodifiableList(new ArrayList<>(this.history));
+    }
+
+    @Override
+    public void close() {
+        this.poller.shutdownNow();
+        this.worker.interrupt();
+        this.closed.countDown();
+    }
+
+    private void poll() {
+        try {
+            this.fetch();
+            this.enqueue();
+        } catch (final RuntimeException e) {
+            // An exception would cancel the next polls
+            LOGGER.error("Failed to poll the version manifest", e);
+        }
+    }
+
+    private void fetch() {
+        final VersionFetchResult result;
+        try {
+            result = this.fetcher.fetchVersions(this.validators);
+        } catch (final VersionFetchingException e) {
+            LOGGER.warn("Failed to poll the version manifest", e);
+            return;
+        }
+        this.validators = result.validators();
+        final List<Version> versions = result.versions();
+        if (versions == null) {
+            LOGGER.debug("Manifest not modified");
+            return;
+        }
+
+        synchronized (this) {
+            this.versions = versions;
+            if (!this.initialized) {
+                // First run without state: everything already published is considered as known
+                versions.forEach(version -> this.knownIds.add(version.id()));
+                this.initialized = true;
+                this.writeState();
+                LOGGER.info("Watching {} known versions", this.knownIds.size());
+            }
+        }
+    }
+
+    /**
+     * Queues the versions of the last fetched manifest that are not processed yet, including the ones left out by a
+     * full queue and the failed ones whose retry is due, even when the manifest is not modified.
+     */
+    private synchronized void enqueue() {
+        final long now = System.currentTimeMillis();
+        // The manifest lists the newest version first, oldest ones are queued first
+        for (int i = this.versions.size() - 1; i >= 0; i--) {
+            final Version version = this.versions.get(i);
+            final String id = version.id();
+            if (this.knownIds.contains(id) || this.pendingIds.contains(id)) {
+                continue;
+            }
+            final Retry retry = this.retries.get(id);
+            if (retry != null && retry.time() > now) {
+                continue;
+            }
+            if (!this.queue.offer(version)) {
+                LOGGER.warn("Watch queue is full, '{}' will be queued on a later poll", id);
+                break;
+            }
+            this.pendingIds.add(id);
+            if (retry != null) {
+                LOGGER.info("Retrying {} ({} failed attempts)", id, retry.failures());
+            } else {
+                LOGGER.info("New version published: {} ({})", id, version.type());
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Version version = this.queue.take();
+                boolean success = true;
+                for (final DirectionType target : this.targets) {
+                    success &= this.process(version, target);
+                }
+                this.complete(version, success);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Only a version processed for every target is stored as known, a failed one is retried later.
+     */
+    private synchronized void complete(final Version version, final boolean success) {
+        final String id = version.id();
+        this.pendingIds.remove(id);
+        if (success) {
+            this.retries.remove(id);
+            this.knownIds.add(id);
+            this.writeState();
+            return;
+        }
+        final Retry previous = this.retries.get(id);
+        final int failures = previous != null ? previous.failures() + 1 : 1;
+        final Duration delay = RETRY_DELAY.multipliedBy(1L << Math.min(failures - 1, 16));
+        final Duration bounded = delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+        this.retries.put(id, new Retry(failures, System.currentTimeMillis() + bounded.toMillis()));
+        LOGGER.warn("{} will be retried in {} minutes", id, bounded.toMinutes());
+    }
+
+    private boolean process(final Version version, final DirectionType target) {
+        final long start = System.currentTimeMillis();
+        boolean success = true;
+        try {
+            new RemapperProcessor(this.settingsFactory.apply(version, target), this.scheduler).process();
+        } catch (final ProcessingException | RuntimeException e) {
+            success = false;
+            LOGGER.error("Failed to process {} ({})", version.id(), target.getKey(), e);
+        }
+        final Duration processingTime = Duration.ofMillis(System.currentTimeMillis() - start);
+        final OffsetDateTime published = version.releaseTime() != null ? version.releaseTime() : version.time();
+        final Duration latency = published != null ? Duration.between(published, OffsetDateTime.now()) : null;
+        if (success) {
+            LOGGER.info("Processed {} ({}) in {}s, {}s after its publication",
+                    version.id(),
+                    target.getKey(),
+                    processingTime.toSeconds(),
+                    latency != null ? latency.toSeconds() : "?");
+        }
+        synchronized (this) {
+            if (this.history.size() == HISTORY_SIZE) {
+                this.history.removeFirst();
+            }
+            this.history.addLast(new ProcessedVersion(version, target, success, latency, processingTime));
+        }
+        return success;
+    }
+
+    private synchronized void readState() {
+        if (Files.notExists(this.stateFile)) {
+            return;
+        }
+        try {
+            for (final String line : Files.readAllLines(this.stateFile)) {
+                if (!line.isBlank()) {
+                    this.knownIds.add(line.trim());
+                }
+            }
+            this.initialized = true;
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to read watch state '{}'", this.stateFile, e);
+        }
+    }
+
+    private synchronized void writeState() {
+        try {
+            final List<String> ids = this.knownIds.stream().sorted().toList();
+            FileUtil.writeAtomically(this.stateFile, writer -> {
+                for (final String id : ids) {
+                    writer.write(id);
+                    writer.write(System.lineSeparator());
+                }
+            });
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to write watch state '{}'", this.stateFile, e);
+        }
+    }
+
+    /**
+     * @param time when the version can be queued again, in epoch milliseconds
+     */
+    private record Retry(int failures, long time) {
+
+    }
+
+}
\ No newline at end of file
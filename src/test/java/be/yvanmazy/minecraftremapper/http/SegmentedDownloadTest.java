@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.http;
+
+import be.yvanmazy.minecraftremapper.http.exception.RequestHttpException;
+import be.yvanmazy.minecraftremapper.util.HashUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedDownloadTest {
+
+    private static final int SIZE = 8 * 1024 * 1024;
+    private static final int SEGMENTS = 4;
+    private static final int SEGMENT_SIZE = SIZE / SEGMENTS;
+
+    private final byte[] content = new byte[SIZE];
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger fullRequests = new AtomicInteger();
+    private final RequestHttpClient client = RequestHttpClient.newDefault();
+
+    @TempDir
+    private Path directory;
+
+    private ExecutorService executor;
+    private HttpServer server;
+    private String sha1;
+
+    private volatile boolean ignoreRanges;
+    private volatile boolean shortRanges;
+    private volatile long delayedStart = -1L;
+    private volatile long cutStart = -1L;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(7).nextBytes(this.content);
+        this.sha1 = HashUtil.hash(this.content);
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/client.jar", this::handle);
+        this.server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void downloadsEverySegment() throws RequestHttpException, IOException {
+        final Path destination = this.directory.resolve("client.jar");
+
+        assertEquals(this.sha1, this.client.download(this.url(), destination, SEGMENTS));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+        assertEquals(SEGMENTS, this.rangeRequests.get());
+        assertEquals(0, this.fullRequests.get());
+    }
+
+    @Test
+    void hashesSegmentsCompletedOutOfOrder() throws RequestHttpException, IOException {
+        // The first segment completes last
+        this.delayedStart = 0L;
+        final Path destination = this.directory.resolve("client.jar");
+
+        assertEquals(this.sha1, this.client.download(this.url(), destination, SEGMENTS));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void fallsBackWhenTheServerIgnoresRanges() throws RequestHttpException, IOException {
+        this.ignoreRanges = true;
+        final Path destination = this.directory.resolve("client.jar");
+
+        assertEquals(this.sha1, this.client.download(this.url(), destination, SEGMENTS));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+        assertEquals(0, this.rangeRequests.get());
+    }
+
+    @Test
+    void fallsBackWhenRangesAreShort() throws RequestHttpException, IOException {
+        this.shortRanges = true;
+        final Path destination = this.directory.resolve("client.jar");
+
+        assertEquals(this.sha1, this.client.download(this.url(), destination, SEGMENTS));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+        assertEquals(1, this.fullRequests.get());
+    }
+
+    @Test
+    void keepsTheContiguousPrefixOfAnInterruptedDownload() throws RequestHttpException, IOException {
+        this.cutStart = SEGMENT_SIZE;
+        final Path destination = this.directory.resolve("client.jar");
+
+        assertThrows(RequestHttpException.class, () -> this.client.download(this.url(), destination, SEGMENTS));
+        final byte[] prefix = Files.readAllBytes(destination);
+        assertTrue(prefix.length < SEGMENT_SIZE * 2, "The prefix must stop in the interrupted segment");
+        assertArrayEquals(Arrays.copyOf(this.content, prefix.length), prefix);
+
+        assertEquals(this.sha1, this.client.resume(this.url(), destination, prefix.length));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void resumesFromOffset() throws RequestHttpException, IOException {
+        final Path destination = this.directory.resolve("client.jar");
+        Files.write(destination, Arrays.copyOf(this.content, 1234));
+
+        assertEquals(this.sha1, this.client.resume(this.url(), destination, 1234));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void resumesACompleteFileAnsweredWith416() throws RequestHttpException, IOException {
+        final Path destination = this.directory.resolve("client.jar");
+        Files.write(destination, this.content);
+
+        assertEquals(this.sha1, this.client.resume(this.url(), destination, SIZE));
+        assertEquals(1, this.rangeRequests.get());
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void resumesFromStartWhenTheServerIgnoresRanges() throws RequestHttpException, IOException {
+        this.ignoreRanges = true;
+        final Path destination = this.directory.resolve("client.jar");
+        // A stale prefix, which must not be kept when the whole body is sent again
+        Files.write(destination, new byte[1234]);
+
+        assertEquals(this.sha1, this.client.resume(this.url(), destination, 1234));
+        assertArrayEquals(this.content, Files.readAllBytes(destination));
+    }
+
+    private String url() {
+        return "http://" + this.server.getAddress().getHostString() + ':' + this.server.getAddress().getPort() + "/client.jar";
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(SIZE));
+                exchange.sendResponseHeaders(200, -1L);
+                return;
+            }
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null || this.ignoreRanges) {
+                this.fullRequests.incrementAndGet();
+                exchange.sendResponseHeaders(200, SIZE);
+                exchange.getResponseBody().write(this.content);
+                return;
+            }
+            this.rangeRequests.incrementAndGet();
+            final String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            final int start = Integer.parseInt(bounds[0]);
+            if (start >= SIZE) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + SIZE);
+                exchange.sendResponseHeaders(416, -1L);
+                return;
+            }
+            int end = bounds[1].isEmpty() ? SIZE - 1 : Integer.parseInt(bounds[1]);
+            if (this.shortRanges) {
+                // Allowed by RFC 9110, the server may send less than the requested range
+                end = start + (end - start) / 2;
+            }
+            if (start == this.delayedStart) {
+                Thread.sleep(500L);
+            }
+            final int length = end - start + 1;
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + '-' + end + '/' + SIZE);
+            exchange.sendResponseHeaders(206, length);
+            final OutputStream body = exchange.getResponseBody();
+            if (start == this.cutStart) {
+                // Closing the exchange before the announced length drops the connection
+                body.write(this.content, start, length / 2);
+                body.flush();
+                return;
+            }
+            body.write(this.content, start, length);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappingRemapperTest {
+
+    private static final Handle METAFACTORY = new Handle(Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+            false);
+    private static final Handle CONCAT_FACTORY = new Handle(Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/StringConcatFactory",
+            "makeConcatWithConstants",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;",
+            false);
+
+    private static final List<String> MAPPING = List.of("net.minecraft.Entity -> a:",
+            "    int health -> a",
+            "    1:1:void tick():10:10 -> a",
+            "    2:2:void move(int) -> a",
+            "net.minecraft.Entity$Part -> a$a:",
+            "    int index -> a",
+            "net.minecraft.Player -> b:",
+            "net.minecraft.Zombie -> c:",
+            "    int rage -> a",
+            "net.minecraft.Task -> d:",
+            "    void run() -> a",
+            "net.minecraft.NamedTask -> e:",
+            "net.minecraft.Scheduler -> f:",
+            "    3:3:void schedule() -> a");
+
+    @TempDir
+    private Path directory;
+
+    private byte[] scheduler;
+    private MappingRemapper remapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final Path mappingFile = this.directory.resolve("mapping.txt");
+        Files.write(mappingFile, MAPPING, StandardCharsets.UTF_8);
+
+        // Obfuscated classes, as found in the game jar
+        final byte[] entity = define(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "java/lang/Object", visitor -> {
+            visitor.visitField(Opcodes.ACC_PUBLIC, "a", "I", null, null);
+            visitor.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "()V", null, null);
+            visitor.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "(I)V", null, null);
+        });
+        final byte[] part = define(Opcodes.ACC_PUBLIC, "a$a", "java/lang/Object", visitor -> visitor.visitField(Opcodes.ACC_PUBLIC, "a", "I", null, null));
+        final byte[] player = define(Opcodes.ACC_PUBLIC, "b", "a", visitor -> {
+        });
+        final byte[] zombie = define(Opcodes.ACC_PUBLIC, "c", "a", visitor -> visitor.visitField(Opcodes.ACC_PUBLIC, "a", "I", null, null));
+        final byte[] task = define(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "d", "java/lang/Object", visitor -> {
+            visitor.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "()V", null, null);
+        });
+        final byte[] namedTask = define(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "e", "java/lang/Object", visitor -> {
+        }, "d");
+        this.scheduler = define(Opcodes.ACC_PUBLIC, "f", "java/lang/Object", visitor -> {
+            final MethodVisitor method = visitor.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+            method.visitCode();
+            method.visitInvokeDynamicInsn("a", "()Ld;", METAFACTORY, Type.getMethodType("()V"), new Handle(Opcodes.H_INVOKESTATIC, "f", "b", "()V", false), Type.getMethodType("()V"));
+            method.visitInsn(Opcodes.POP);
+            method.visitInvokeDynamicInsn("a", "()Le;", METAFACTORY, Type.getMethodType("()V"), new Handle(Opcodes.H_INVOKESTATIC, "f", "b", "()V", false), Type.getMethodType("()V"));
+            method.visitInsn(Opcodes.POP);
+            method.visitLdcInsn(1);
+            method.visitInvokeDynamicInsn("a", "(I)Ljava/lang/String;", CONCAT_FACTORY, "\u0001");
+            method.visitInsn(Opcodes.POP);
+            method.visitInsn(Opcodes.RETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+            final MethodVisitor lambda = visitor.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "b", "()V", null, null);
+            lambda.visitCode();
+            lambda.visitInsn(Opcodes.RETURN);
+            lambda.visitMaxs(0, 0);
+            lambda.visitEnd();
+        });
+
+        this.remapper = new MappingRemapper(ProguardMapping.load(mappingFile), hierarchy(entity, part, player, zombie, task, namedTask, this.scheduler));
+    }
+
+    @Test
+    void mapsInnerClassesAndDescriptors() {
+        assertEquals("net/minecraft/Entity", this.remapper.map("a"));
+        assertEquals("net/minecraft/Entity$Part", this.remapper.map("a$a"));
+        assertEquals("java/lang/Object", this.remapper.map("java/lang/Object"));
+        assertEquals("(Lnet/minecraft/Entity$Part;[Lnet/minecraft/Entity;)Lnet/minecraft/Entity;", this.remapper.mapMethodDesc("(La$a;[La;)La;"));
+        assertEquals("index", this.remapper.mapFieldName("a$a", "a", "I"));
+    }
+
+    @Test
+    void mapsOverloadsByDescriptor() {
+        assertEquals("tick", this.remapper.mapMethodName("a", "a", "()V"));
+        assertEquals("move", this.remapper.mapMethodName("a", "a", "(I)V"));
+        assertEquals("a", this.remapper.mapMethodName("a", "a", "(J)V"));
+    }
+
+    @Test
+    void mapsInheritedFieldsFromTheirDeclaringClass() {
+        assertEquals("health", this.remapper.mapFieldName("a", "a", "I"));
+        assertEquals("health", this.remapper.mapFieldName("b", "a", "I"));
+        // A field hiding the one of the superclass has its own name
+        assertEquals("rage", this.remapper.mapFieldName("c", "a", "I"));
+        assertEquals("b", this.remapper.mapFieldName("b", "b", "I"));
+    }
+
+    @Test
+    void mapsInheritedMethodsFromTheirDeclaringClass() {
+        assertEquals("tick", this.remapper.mapMethodName("b", "a", "()V"));
+        assertEquals("move", this.remapper.mapMethodName("c", "a", "(I)V"));
+        assertEquals("run", this.remapper.mapMethodName("e", "a", "()V"));
+    }
+
+    @Test
+    void keepsNamesOfConstructorsAndArrayMethods() {
+        assertEquals("<init>", this.remapper.mapMethodName("a", "<init>", "()V"));
+        assertEquals("<clinit>", this.remapper.mapMethodName("a", "<clinit>", "()V"));
+        assertEquals("clone", this.remapper.mapMethodName("[La;", "clone", "()Ljava/lang/Object;"));
+    }
+
+    @Test
+    void mapsLambdasToTheMethodOfTheirFunctionalInterface() {
+        final ClassNode node = new ClassNode();
+        new ClassReader(this.scheduler).accept(this.remapper.newClassRemapper(node), 0);
+
+        assertEquals("net/minecraft/Scheduler", node.name);
+        final MethodNode schedule = node.methods.get(0);
+        assertEquals("schedule", schedule.name);
+        assertEquals("b", node.methods.get(1).name);
+        final List<String> callSites = new ArrayList<>();
+        for (final AbstractInsnNode instruction : schedule.instructions) {
+            if (instruction instanceof final InvokeDynamicInsnNode invokeDynamic) {
+                callSites.add(invokeDynamic.name + invokeDynamic.desc);
+            }
+        }
+        // Only call sites of the lambda metafactory are named after a method
+        assertEquals(List.of("run()Lnet/minecraft/Task;", "run()Lnet/minecraft/NamedTask;", "a(I)Ljava/lang/String;"), callSites);
+    }
+
+    private static byte[] define(final int access,
+                                 final String name,
+                                 final String superName,
+                                 final Consumer<ClassVisitor> members,
+                                 final String... interfaces) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, access, name, null, superName, interfaces);
+        members.accept(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static ClassHierarchy hierarchy(final byte[]... classes) {
+        final Map<String, ClassHierarchy.Node> nodes = new HashMap<>();
+        for (final byte[] bytes : classes) {
+            final ClassHierarchy.Collector collector = new ClassHierarchy.Collector();
+            new ClassReader(bytes).accept(collector, ClassReader.SKIP_CODE);
+            nodes.put(collector.getName(), collector.toNode());
+        }
+        return new ClassHierarchy(nodes);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelJarRemapperTest {
+
+    // More classes than a batch, so that they are split between the threads
+    private static final int CLASS_COUNT = 300;
+
+    @TempDir
+    private Path directory;
+
+    private Path jar;
+    private ProguardMapping mapping;
+    private final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final List<String> lines = new ArrayList<>(List.of("net.minecraft.Entity -> a:",
+                "    int health -> a",
+                "    void tick() -> a"));
+        this.classes.put("a", define("a", "java/lang/Object", true));
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            lines.add("net.minecraft.entity.Entity" + i + " -> b" + i + ':');
+            this.classes.put("b" + i, define("b" + i, "a", false));
+        }
+        final Path mappingFile = Files.write(this.directory.resolve("mapping.txt"), lines, StandardCharsets.UTF_8);
+        this.mapping = ProguardMapping.load(mappingFile);
+
+        this.jar = this.directory.resolve("client.jar");
+        try (final ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(this.jar))) {
+            write(stream, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+            write(stream, "META-INF/MOJANGCS.SF", new byte[16]);
+            write(stream, "META-INF/MOJANGCS.RSA", new byte[16]);
+            for (final Map.Entry<String, byte[]> entry : this.classes.entrySet()) {
+                write(stream, entry.getKey() + ".class", entry.getValue());
+            }
+            write(stream, "assets/minecraft/lang/en_us.json", "{}".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void writesTheSameJarWithAnyParallelism() throws IOException {
+        final Path sequential = this.directory.resolve("sequential.jar");
+        final Path parallel = this.directory.resolve("parallel.jar");
+        final ForkJoinPool single = new ForkJoinPool(1);
+        final ForkJoinPool several = new ForkJoinPool(4);
+        try {
+            new ParallelJarRemapper(this.mapping, single).remap(this.jar, sequential);
+            new ParallelJarRemapper(this.mapping, several).remap(this.jar, parallel);
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+
+        assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel));
+    }
+
+    @Test
+    void remapsLikeASingleClassRemapper() throws IOException {
+        final Path output = this.directory.resolve("remapped.jar");
+        new ParallelJarRemapper(this.mapping).remap(this.jar, output);
+
+        // Reference remapping, one class at a time with the hierarchy of the whole jar
+        final Map<String, ClassHierarchy.Node> nodes = new HashMap<>();
+        for (final byte[] bytes : this.classes.values()) {
+            final ClassHierarchy.Collector collector = new ClassHierarchy.Collector();
+            new ClassReader(bytes).accept(collector, ClassReader.SKIP_CODE);
+            nodes.put(collector.getName(), collector.toNode());
+        }
+        final MappingRemapper remapper = new MappingRemapper(this.mapping, new ClassHierarchy(nodes));
+        final Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+        for (final Map.Entry<String, byte[]> entry : this.classes.entrySet()) {
+            final ClassWriter writer = new ClassWriter(0);
+            new ClassReader(entry.getValue()).accept(remapper.newClassRemapper(writer), 0);
+            expected.put(remapper.map(entry.getKey()) + ".class", writer.toByteArray());
+        }
+        expected.put("assets/minecraft/lang/en_us.json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        final Map<String, byte[]> actual = read(output);
+        // Same entries in the order of the input jar, without its signature
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+        final ClassNode node = new ClassNode();
+        new ClassReader(actual.get("net/minecraft/entity/Entity7.class")).accept(node, 0);
+        assertEquals("net/minecraft/Entity", node.superName);
+        final List<String> references = new ArrayList<>();
+        for (final AbstractInsnNode instruction : node.methods.get(0).instructions) {
+            if (instruction instanceof final MethodInsnNode method) {
+                references.add(method.owner + '.' + method.name);
+            } else if (instruction instanceof final FieldInsnNode field) {
+                references.add(field.owner + '.' + field.name);
+            }
+        }
+        assertEquals(List.of("net/minecraft/entity/Entity7.tick", "net/minecraft/entity/Entity7.health"), references);
+    }
+
+    private static byte[] define(final String name, final String superName, final boolean declaresMembers) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        if (declaresMembers) {
+            writer.visitField(Opcodes.ACC_PUBLIC, "a", "I", null, null).visitEnd();
+            final MethodVisitor tick = writer.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+            tick.visitCode();
+            tick.visitInsn(Opcodes.RETURN);
+            tick.visitMaxs(0, 0);
+            tick.visitEnd();
+        } else {
+            // References the members inherited from the superclass
+            final MethodVisitor tick = writer.visitMethod(Opcodes.ACC_PUBLIC, "b", "()V", null, null);
+            tick.visitCode();
+            tick.visitVarInsn(Opcodes.ALOAD, 0);
+            tick.visitMethodInsn(Opcodes.INVOKEVIRTUAL, name, "a", "()V", false);
+            tick.visitVarInsn(Opcodes.ALOAD, 0);
+            tick.visitInsn(Opcodes.ICONST_1);
+            tick.visitFieldInsn(Opcodes.PUTFIELD, name, "a", "I");
+            tick.visitInsn(Opcodes.RETURN);
+            tick.visitMaxs(0, 0);
+            tick.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void write(final ZipOutputStream stream, final String name, final byte[] content) throws IOException {
+        stream.putNextEntry(new ZipEntry(name));
+        stream.write(content);
+        stream.closeEntry();
+    }
+
+    private static Map<String, byte[]> read(final Path jar) throws IOException {
+        final Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            for (final ZipEntry entry : Collections.list(zip.entries())) {
+                try (final InputStream stream = zip.getInputStream(entry)) {
+                    contents.put(entry.getName(), stream.readAllBytes());
+                }
+            }
+        }
+        return contents;
+    }
+
+}
\ No newline at end of file
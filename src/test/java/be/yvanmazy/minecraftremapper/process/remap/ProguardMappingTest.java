@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.process.remap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProguardMappingTest {
+
+    private static final List<String> MAPPING = List.of("# compiler: R8",
+            "# pg_map_id: 1a2b3c",
+            "net.minecraft.world.Entity -> a:",
+            "# {\"fileName\":\"Entity.java\",\"id\":\"sourceFile\"}",
+            "    int count -> a",
+            "    net.minecraft.world.Entity$Part[] parts -> b",
+            "    12:14:void tick():80:82 -> a",
+            "    15:15:void move(int) -> a",
+            "    # {\"id\":\"com.android.tools.r8.synthesized\"}",
+            "    16:16:net.minecraft.world.Entity$Part getPart(int) -> a",
+            "    17:17:java.lang.String describe(net.minecraft.world.Entity,long[][]) -> b",
+            "    18:18:void net.minecraft.util.Mth.clamp():5:5 -> c",
+            "    19:19:void render() -> c",
+            "",
+            "net.minecraft.world.Entity$Part -> a$a:",
+            "\t# {\"fileName\":\"Entity.java\",\"id\":\"sourceFile\"}",
+            "    net.minecraft.world.Entity parent -> a",
+            "    void <init>(net.minecraft.world.Entity) -> <init>",
+            "net.minecraft.world.Unused -> b:");
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void mapsClassesIncludingInnerClasses() throws IOException {
+        final ProguardMapping mapping = this.load(MAPPING);
+
+        assertEquals("net/minecraft/world/Entity", mapping.getClassName("a"));
+        assertEquals("net/minecraft/world/Entity$Part", mapping.getClassName("a$a"));
+        assertEquals("net/minecraft/world/Unused", mapping.getClassName("b"));
+        assertNull(mapping.getClassName("c"));
+        assertEquals(3, mapping.getClassCount());
+    }
+
+    @Test
+    void mapsFieldsOfTheirDeclaringClass() throws IOException {
+        final ProguardMapping mapping = this.load(MAPPING);
+
+        assertEquals("count", mapping.getFieldName("a", "a"));
+        assertEquals("parts", mapping.getFieldName("a", "b"));
+        assertEquals("parent", mapping.getFieldName("a$a", "a"));
+        assertNull(mapping.getFieldName("a", "z"));
+        assertNull(mapping.getFieldName("b", "a"));
+        assertNull(mapping.getFieldName("c", "a"));
+    }
+
+    @Test
+    void distinguishesOverloadsByObfuscatedDescriptor() throws IOException {
+        final ProguardMapping mapping = this.load(MAPPING);
+
+        assertEquals("tick", mapping.getMethodName("a", "a", "()V"));
+        assertEquals("move", mapping.getMethodName("a", "a", "(I)V"));
+        assertEquals("getPart", mapping.getMethodName("a", "a", "(I)La$a;"));
+        assertEquals("describe", mapping.getMethodName("a", "b", "(La;[[J)Ljava/lang/String;"));
+        assertEquals("<init>", mapping.getMethodName("a$a", "<init>", "(La;)V"));
+        assertNull(mapping.getMethodName("a", "a", "(J)V"));
+    }
+
+    @Test
+    void skipsMethodsInlinedFromOtherClasses() throws IOException {
+        final ProguardMapping mapping = this.load(MAPPING);
+
+        // Only the method declared by the class keeps its obfuscated name
+        assertEquals("render", mapping.getMethodName("a", "c", "()V"));
+    }
+
+    @Test
+    void skipsIndentedComments() throws IOException {
+        final ProguardMapping mapping = this.load(List.of("net.minecraft.Server -> a:",
+                "    # {\"id\":\"com.android.tools.r8.synthesized\"}",
+                "\t#",
+                "    int port -> a"));
+
+        assertEquals("port", mapping.getFieldName("a", "a"));
+    }
+
+    @Test
+    void keepsDescriptorsOfUnmappedTypes() throws IOException {
+        final ProguardMapping mapping = this.load(List.of("net.minecraft.Server -> a:",
+                "    java.util.List players(java.lang.String[],boolean) -> a"));
+
+        assertEquals("players", mapping.getMethodName("a", "a", "([Ljava/lang/String;Z)Ljava/util/List;"));
+    }
+
+    @Test
+    void rejectsLinesWithoutArrow() {
+        final List<String> lines = List.of("net.minecraft.Server -> a:", "    int port");
+
+        final IOException exception = assertThrows(IOException.class, () -> this.load(lines));
+        assertTrue(exception.getMessage().contains("line 2"), exception.getMessage());
+    }
+
+    @Test
+    void rejectsMembersOutsideOfClasses() {
+        final List<String> lines = List.of("# compiler: R8", "    int port -> a");
+
+        final IOException exception = assertThrows(IOException.class, () -> this.load(lines));
+        assertTrue(exception.getMessage().startsWith("Member outside of a class at line 2"), exception.getMessage());
+    }
+
+    private ProguardMapping load(final List<String> lines) throws IOException {
+        final Path path = this.directory.resolve("mapping.txt");
+        Files.write(path, lines, StandardCharsets.UTF_8);
+        return ProguardMapping.load(path);
+    }
+
+}
\ No newline at end of file
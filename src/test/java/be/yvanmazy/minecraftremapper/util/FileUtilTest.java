@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileUtilTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void acceptsValidJars() throws IOException {
+        final Path jar = this.writeJar("client.jar", 16, null);
+
+        assertValid(jar, true);
+    }
+
+    @Test
+    void acceptsEmptyJarsAndComments() throws IOException {
+        assertValid(this.writeJar("empty.jar", 0, null), true);
+        assertValid(this.writeJar("comment.jar", 4, "x".repeat(1024)), true);
+    }
+
+    @Test
+    void acceptsDataPrependedToTheArchive() throws IOException {
+        final Path jar = this.writeJar("client.jar", 16, null);
+        final byte[] bytes = Files.readAllBytes(jar);
+        try (final OutputStream stream = Files.newOutputStream(jar)) {
+            stream.write("#!/bin/sh\n".getBytes(StandardCharsets.UTF_8));
+            stream.write(bytes);
+        }
+
+        assertValid(jar, true);
+    }
+
+    @Test
+    void rejectsMissingAndInvalidFiles() throws IOException {
+        assertValid(this.directory.resolve("missing.jar"), false);
+        assertValid(Files.createFile(this.directory.resolve("blank.jar")), false);
+        assertValid(Files.writeString(this.directory.resolve("text.jar"), "Not a jar".repeat(16)), false);
+    }
+
+    @Test
+    void rejectsTruncatedJars() throws IOException {
+        final Path jar = this.writeJar("client.jar", 16, null);
+        final long size = Files.size(jar);
+
+        // Cut in the end record, in the central directory, then in the entries
+        for (final long length : new long[] {size - 1, size - 22, size - 64, size / 2, 4}) {
+            final Path truncated = this.directory.resolve("truncated-" + length + ".jar");
+            Files.copy(jar, truncated);
+            truncate(truncated, length);
+            assertValid(truncated, false);
+        }
+    }
+
+    @Test
+    void acceptsZip64Jars() throws IOException {
+        // More entries than the 16 bits field of the end record holds
+        final Path jar = this.writeJar("client.jar", 0x10000, null);
+
+        assertEquals(0xFFFF, Short.toUnsignedInt(readEndRecord(jar).getShort(10)));
+        assertValid(jar, true);
+    }
+
+    @Test
+    void rejectsTruncatedZip64Jars() throws IOException {
+        final Path jar = this.writeJar("client.jar", 0x10000, null);
+        final long size = Files.size(jar);
+        final Path withoutLocator = this.directory.resolve("without-locator.jar");
+        Files.copy(jar, withoutLocator);
+
+        // Removes the zip64 locator and the end record, then adds back an end record pointing to the missing record
+        final ByteBuffer end = readEndRecord(jar);
+        truncate(withoutLocator, size - 22 - 20);
+        try (final FileChannel channel = FileChannel.open(withoutLocator, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(end.rewind());
+        }
+        assertValid(withoutLocator, false);
+
+        final Path truncated = this.directory.resolve("truncated.jar");
+        Files.copy(jar, truncated);
+        truncate(truncated, size - 1);
+        assertValid(truncated, false);
+    }
+
+    private Path writeJar(final String name, final int entries, final String comment) throws IOException {
+        final Path path = this.directory.resolve(name);
+        try (final ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (int i = 0; i < entries; i++) {
+                stream.putNextEntry(new ZipEntry("a/" + i + ".class"));
+                stream.write(("class " + i).getBytes(StandardCharsets.UTF_8));
+                stream.closeEntry();
+            }
+            if (comment != null) {
+                stream.setComment(comment);
+            }
+        }
+        return path;
+    }
+
+    private static ByteBuffer readEndRecord(final Path jar) throws IOException {
+        try (final FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            final ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(end, channel.size() - 22);
+            return end;
+        }
+    }
+
+    private static void truncate(final Path path, final long size) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void assertValid(final Path path, final boolean valid) {
+        assertEquals(valid, FileUtil.isValidJar(path), "Quick check of " + path.getFileName());
+        assertEquals(valid, FileUtil.isValidJar(path, true), "Deep check of " + path.getFileName());
+    }
+
+}
\ No newline at end of file
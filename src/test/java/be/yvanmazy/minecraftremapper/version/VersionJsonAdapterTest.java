@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionJsonAdapterTest {
+
+    private static final String URL = "https://piston-meta.mojang.com/v1/packages/0123/1.21.json";
+
+    private final VersionJsonAdapter adapter = new VersionJsonAdapter();
+
+    @Test
+    void readsVersions() throws IOException {
+        final Version version = this.read("{\"id\":\"1.21\",\"type\":\"release\",\"url\":\"" + URL + "\",\"time\":\"2024-06-13T08:32:38+00:00\"," +
+                "\"releaseTime\":\"2024-06-13T08:24:03+02:00\",\"sha1\":\"0123\",\"complianceLevel\":1}");
+
+        assertEquals(new Version("1.21",
+                VersionType.RELEASE,
+                URL,
+                OffsetDateTime.of(2024, 6, 13, 8, 32, 38, 0, ZoneOffset.UTC),
+                OffsetDateTime.of(2024, 6, 13, 8, 24, 3, 0, ZoneOffset.ofHours(2)),
+                "0123"), version);
+        assertEquals(version, VersionJsonAdapter.deserialize(VersionJsonAdapter.serialize(version)));
+    }
+
+    @Test
+    void readsOptionalFieldsAsNull() throws IOException {
+        final Version version = this.read("{\"id\":\"a1.0.4\",\"type\":\"old_alpha\",\"url\":\"" + URL + "\",\"time\":null,\"sha1\":null}");
+
+        assertEquals(VersionType.OLD_ALPHA, version.type());
+        assertNull(version.time());
+        assertNull(version.releaseTime());
+        assertNull(version.sha1());
+        assertNull(this.read("null"));
+    }
+
+    @Test
+    void rejectsMissingNullAndNonStringFields() {
+        for (final String fields : new String[] {"\"type\":\"release\",\"url\":\"" + URL + '"',
+                "\"id\":null,\"type\":\"release\",\"url\":\"" + URL + '"',
+                "\"id\":\"1.21\",\"type\":{\"name\":\"release\"},\"url\":\"" + URL + '"',
+                "\"id\":\"1.21\",\"type\":\"release\",\"url\":[\"" + URL + "\"]"}) {
+            final JsonParseException exception = assertThrows(JsonParseException.class, () -> this.read('{' + fields + '}'));
+            assertTrue(exception.getMessage().startsWith("Incomplete version"), exception.getMessage());
+        }
+    }
+
+    @Test
+    void reportsThePathOfAnIncompleteVersion() throws IOException {
+        final JsonReader reader = new JsonReader(new StringReader("[{\"id\":\"1.21\",\"type\":\"release\",\"url\":\"" + URL + "\"}," +
+                "{\"id\":\"1.20\"},{\"id\":\"1.19\",\"type\":\"release\",\"url\":\"" + URL + "\"}]"));
+        reader.beginArray();
+
+        assertEquals("1.21", this.adapter.read(reader).id());
+        final JsonParseException exception = assertThrows(JsonParseException.class, () -> this.adapter.read(reader));
+        assertEquals("Incomplete version at $[1]", exception.getMessage());
+        // The invalid version is consumed, the next one can still be read
+        assertEquals("1.19", this.adapter.read(reader).id());
+    }
+
+    @Test
+    void rejectsInvalidTimesAndTypes() {
+        final JsonParseException time = assertThrows(JsonParseException.class,
+                () -> this.read("{\"id\":\"1.21\",\"type\":\"release\",\"url\":\"" + URL + "\",\"time\":\"yesterday\"}"));
+        assertEquals("Invalid time for version '1.21'", time.getMessage());
+        assertTrue(time.getCause() instanceof DateTimeParseException);
+
+        final JsonParseException type = assertThrows(JsonParseException.class,
+                () -> this.read("{\"id\":\"1.21\",\"type\":\"pending\",\"url\":\"" + URL + "\"}"));
+        assertEquals("Invalid version type: 'pending' for version '1.21'", type.getMessage());
+    }
+
+    @Test
+    void parsesTimesOutsideOfTheFixedWidthFormat() {
+        final OffsetDateTime expected = OffsetDateTime.of(2024, 6, 13, 8, 24, 3, 0, ZoneOffset.UTC);
+
+        assertEquals(expected, VersionJsonAdapter.parseTime("2024-06-13T08:24:03+00:00"));
+        assertEquals(expected, VersionJsonAdapter.parseTime("2024-06-13T08:24:03Z"));
+        assertEquals(expected.withNano(500_000_000), VersionJsonAdapter.parseTime("2024-06-13T08:24:03.5Z"));
+        assertEquals(OffsetDateTime.of(2024, 6, 13, 8, 24, 3, 0, ZoneOffset.ofHoursMinutes(-5, -30)),
+                VersionJsonAdapter.parseTime("2024-06-13T08:24:03-05:30"));
+        assertThrows(DateTimeParseException.class, () -> VersionJsonAdapter.parseTime("2024-06-13T08:24:0x+00:00"));
+    }
+
+    private Version read(final String json) throws IOException {
+        return this.adapter.read(new JsonReader(new StringReader(json)));
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Yvan Mazy
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package be.yvanmazy.minecraftremapper.version;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionMetadataParserTest {
+
+    @Test
+    void readsOnlyTheDownloads() throws IOException {
+        final Map<String, VersionDownload> downloads = VersionMetadataParser.readDownloads(reader("{\"arguments\":{\"game\":[\"--demo\"]}," +
+                "\"downloads\":{\"client\":{\"sha1\":\"0123\",\"size\":26836906,\"url\":\"https://piston-data.mojang.com/client.jar\"}," +
+                "\"client_mappings\":{\"sha1\":null,\"url\":\"https://piston-data.mojang.com/client.txt\",\"extra\":[1,2]}}," +
+                "\"libraries\":[{\"name\":\"com.google.code.gson:gson:2.10.1\"}],\"id\":\"1.21\"}"));
+
+        assertEquals(Map.of("client", new VersionDownload("0123", 26836906L, "https://piston-data.mojang.com/client.jar"),
+                "client_mappings", new VersionDownload(null, -1L, "https://piston-data.mojang.com/client.txt")), downloads);
+    }
+
+    @Test
+    void readsMetadataWithoutDownloads() throws IOException {
+        assertEquals(Map.of(), VersionMetadataParser.readDownloads(reader("{\"id\":\"rd-132211\"}")));
+    }
+
+    @Test
+    void rejectsDownloadsWithoutUrl() {
+        final IOException exception = assertThrows(IOException.class,
+                () -> VersionMetadataParser.readDownloads(reader("{\"downloads\":{\"server\":{\"sha1\":\"0123\",\"size\":1}}}")));
+
+        assertEquals("Download entry without url at $.downloads.server", exception.getMessage());
+    }
+
+    @Test
+    void rejectsInvalidStructures() {
+        assertThrows(IllegalStateException.class, () -> VersionMetadataParser.readDownloads(reader("{\"downloads\":[]}")));
+        assertThrows(IllegalStateException.class,
+                () -> VersionMetadataParser.readDownloads(reader("{\"downloads\":{\"client\":{\"url\":null}}}")));
+        assertThrows(NumberFormatException.class,
+                () -> VersionMetadataParser.readDownloads(reader("{\"downloads\":{\"client\":{\"size\":\"large\",\"url\":\"x\"}}}")));
+        assertThrows(EOFException.class, () -> VersionMetadataParser.readDownloads(reader("{\"downloads\":{\"client\":{\"url\":\"x\"")));
+    }
+
+    private static JsonReader reader(final String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+}
\ No newline at end of file